@@ -10,12 +10,24 @@ import java.util.*;
 public class ActionExecutor {
     private final HashMap<String, HashSet<GameAction>> actionsMap;
     private final GameMap map;
+    private final ActionIndex actionIndex;
     public ActionExecutor(HashMap<String, HashSet<GameAction>>actionsMap, GameMap gameMap) {
+        this(actionsMap, gameMap, new ActionIndex(actionsMap));
+    }
+
+    /* GameEngine builds the action index once and hands it to every ActionExecutor*/
+    public ActionExecutor(HashMap<String, HashSet<GameAction>>actionsMap, GameMap gameMap, ActionIndex actionIndex) {
         this.actionsMap = actionsMap;
         this.map = gameMap;
+        this.actionIndex = actionIndex;
     }
 
     public String executeAction(String trigger, StagPlayer currentPlayer, String command) {
+        return executeAction(trigger, currentPlayer, CommandTokens.parse(command));
+    }
+
+    /* same as above for a command which has already been split up by GameEngine*/
+    public String executeAction(String trigger, StagPlayer currentPlayer, CommandTokens command) {
         /* returns the actions associated with the trigger in the user command*/
         HashSet<GameAction> actions = actionsMap.get(trigger);
         /* Check if actions is null and return an error message */
@@ -24,7 +36,7 @@ public class ActionExecutor {
         }
         /* If there are more than one possible action with the same trigger in the location, this method
         * will set the matching action to null. It will then fail the first check in the next method */
-        GameAction matchingAction = findMatchingAction(actions, currentPlayer, command);
+        GameAction matchingAction = findMatchingAction(trigger, currentPlayer, command);
         /* The matching command then goes into the checker which will then check the rest of the command and
         * if it is a valid one, it will return valid. If not, then it will return an appropriate response error*/
         String check = checks(matchingAction, command);
@@ -34,31 +46,33 @@ public class ActionExecutor {
         return check;
     }
 
-    /* This method  searches through the GameActions to find any actions that are located in the
-    player's current location or inventory and have a matching subject to the given command.
+    /* This method searches through the GameActions to find any actions that are located in the
+    player's current location or inventory and have a matching subject to the given command. The action index
+    only hands back the actions with a subject named in the command, so the other actions for this trigger are
+    never looked at.
     If there is only one matching action, it returns that action.
-    If there are multiple matching actions, it uses the containsAllWords method to choose the best matching action
-    based on the words in the command. If no matching actions are found, it returns null. */
+    If there are multiple matching actions, it returns the first one whose subjects are all in the command.
+    If no matching actions are found, it returns null. */
 
-    private GameAction findMatchingAction(HashSet<GameAction> actions, StagPlayer currentPlayer, String command) {
+    private GameAction findMatchingAction(String trigger, StagPlayer currentPlayer, CommandTokens command) {
 
-        List<List<String>> matchingSubjects = new ArrayList<>();
-        for (GameAction action : actions) {
-            if (inPlayerLocationAndInventory(action, currentPlayer) && hasSubject(action, command)) {
-                matchingSubjects.add(action.getSubjects());
+        List<GameAction> matchingActions = new ArrayList<>();
+        for (GameAction action : actionIndex.actionsWithSubjectIn(trigger, command, map.getSymbols())) {
+            if (inPlayerLocationAndInventory(action, currentPlayer)) {
+                matchingActions.add(action);
             }
         }
-        if (matchingSubjects.isEmpty()) {
+        if (matchingActions.isEmpty()) {
             return null;
         }
-        else if (matchingSubjects.size() == 1) {
-            return getActionBySubject(actions, matchingSubjects.get(0));
+        else if (matchingActions.size() == 1) {
+            return matchingActions.get(0);
         }
         else {
-            String[] userCommandParts = command.split(" ");
-            for (List<String> subjects : matchingSubjects) {
-                if (containsAllSubjects(subjects, userCommandParts)) {
-                    return getActionBySubject(actions, subjects);
+            String[] userCommandParts = command.getTokens();
+            for (GameAction action : matchingActions) {
+                if (containsAllSubjects(action.getSubjects(), userCommandParts)) {
+                    return action;
                 }
             }
             return null;
@@ -82,21 +96,10 @@ public class ActionExecutor {
         return true;
     }
 
-
-    /* this method gets an action based on certain subjects*/
-    private GameAction getActionBySubject(HashSet<GameAction> actions, List<String> subjects) {
-        for (GameAction action : actions) {
-            if (action.getSubjects().equals(subjects)) {
-                return action;
-            }
-        }
-        return null;
-    }
-
     /* this method does some checks on the action and if the check is valid and passes all the checks, this method will
     * return valid*/
 
-    private String checks(GameAction action, String command){
+    private String checks(GameAction action, CommandTokens command){
         /* null can occur if there are no matching actions or there are too many matching actions*/
         if (action == null) {
             return "Invalid command- Please try and make the command more specific to match with an action";
@@ -115,40 +118,25 @@ public class ActionExecutor {
     of the action exist in either the player's location, in the player's inventory or the subject which is a location
     is the location which the player is in*/
     private boolean inPlayerLocationAndInventory(GameAction action, StagPlayer currentPlayer) {
-        List<String> subjects = action.getSubjects();
-        boolean allSubjectsFound = true;
-        for (String subject : subjects) {
-            if (!currentPlayer.getInventory().containsKey(subject)
-                    && !currentPlayer.getLocation().containsEntityExcludingExits(subject)
-                    && !currentPlayer.getLocation().getName().equals(subject)) {
-                allSubjectsFound = false;
-                break;
-            }
-        }
-        return allSubjectsFound;
-    }
-
-    /* This method checks that there is at least one subject of the action within the command given by the user */
-    private boolean hasSubject(GameAction action, String command) {
-        String[] words = command.split(" ");
-        for (String word : words) {
-            if (action.getSubjects().contains(word)) {
-                return true;
-            }
+        StagLocation location = currentPlayer.getLocation();
+        /* a subject which is not an entity has no id, and can never be found*/
+        if (!action.allSubjectsKnown()) {
+            return false;
         }
-        return false;
+        /* every subject must be in the inventory, in the location or be the location itself*/
+        return action.getSubjectBits().isSubsetOf(currentPlayer.getInventoryIds(), location.getContentIds(),
+                location.getId());
     }
 
     /* the purpose of this method is to check whether there are other entities in the command other than
     * the subjects of the trigger of the action within the user*/
     /* this method helps check for composite commands and extraneous entities within the user command*/
 
-    private boolean isValidEntities(GameAction action, String command) {
-        List<String> entities = map.getEntities();
-        String[] words = command.split(" ");
-        List<String> actionSubjects = action.getSubjects();
-        for (String word : words) {
-            if (entities.contains(word) && !actionSubjects.contains(word)) {
+    private boolean isValidEntities(GameAction action, CommandTokens command) {
+        EntitySymbols symbols = map.getSymbols();
+        for (String word : command.getTokens()) {
+            int id = symbols.idOf(word);
+            if (id != EntitySymbols.NO_ID && !action.hasSubject(id)) {
                 return false;
             }
         }
@@ -240,7 +228,8 @@ public class ActionExecutor {
     }
 
     /* this method will produce the entity whether it is health or other entity within the location that
-    * the player is in*/
+    * the player is in. Produced entities are taken straight out of the storeroom rather than searched for
+    * across the whole map, so only the storeroom and the player's location are touched*/
 
 
     // needs to be refactored...
@@ -261,17 +250,17 @@ public class ActionExecutor {
                 if (storeroom.containsEntity(producedEntity)) {
                     EntityType type = storeroom.getType(producedEntity);
                     if (type == EntityType.ARTEFACT) {
-                        StagArtefact artefact = map.getStagArtefact(producedEntity);
+                        StagArtefact artefact = storeroom.getArtefacts().get(producedEntity);
                         currentPlayer.getLocation().addArtefact(producedEntity, artefact);
                         storeroom.removeEntity(producedEntity);
                     }
                     else if (type == EntityType.CHARACTER) {
-                        StagCharacter character = map.getStagCharacter(producedEntity);
+                        StagCharacter character = storeroom.getCharacters().get(producedEntity);
                         currentPlayer.getLocation().addCharacter(producedEntity, character);
                         storeroom.removeEntity(producedEntity);
                     }
                     else if (type == EntityType.FURNITURE) {
-                        StagFurniture furniture = map.getStagFurniture(producedEntity);
+                        StagFurniture furniture = storeroom.getFurniture().get(producedEntity);
                         currentPlayer.getLocation().addFurniture(producedEntity, furniture);
                         storeroom.removeEntity(producedEntity);
                     }
@@ -0,0 +1,81 @@
+package edu.uob;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/* An inverted index over the actions, built once when the game is loaded. For every trigger it maps each subject
+ entity id to the actions with that trigger which use it, so ActionExecutor only looks at the actions whose
+ subjects are actually named in the command, however many actions share a common trigger like "open".
+
+ Every action is also given an id, and actions are told apart by id rather than by comparing subject lists.
+ The candidates for a trigger always come back in the order of that trigger's set of actions, which is the
+ order ActionExecutor used to go through them */
+
+public final class ActionIndex {
+
+    private final Map<String, TriggerActions> byTrigger = new HashMap<>();
+    private final List<GameAction> actionsById = new ArrayList<>();
+
+    public ActionIndex(Map<String, ? extends Collection<GameAction>> actionsMap) {
+        for (Map.Entry<String, ? extends Collection<GameAction>> entry : actionsMap.entrySet()) {
+            GameAction[] actions = entry.getValue().toArray(new GameAction[0]);
+            HashMap<Integer, BitSet> bySubject = new HashMap<>();
+            for (int position = 0; position < actions.length; position++) {
+                GameAction action = actions[position];
+                if (action.getId() < 0) {
+                    action.setId(actionsById.size());
+                    actionsById.add(action);
+                }
+                for (int subject : action.getSubjectIds()) {
+                    if (subject != EntitySymbols.NO_ID) {
+                        bySubject.computeIfAbsent(subject, id -> new BitSet()).set(position);
+                    }
+                }
+            }
+            byTrigger.put(entry.getKey(), new TriggerActions(actions, bySubject));
+        }
+    }
+
+    public GameAction getAction(int id) {
+        return actionsById.get(id);
+    }
+
+    public int size() {
+        return actionsById.size();
+    }
+
+    /* returns the trigger's actions which have at least one of the command's tokens as a subject*/
+    public List<GameAction> actionsWithSubjectIn(String trigger, CommandTokens command, EntitySymbols symbols) {
+        TriggerActions triggerActions = byTrigger.get(trigger);
+        List<GameAction> candidates = new ArrayList<>();
+        if (triggerActions == null) {
+            return candidates;
+        }
+        BitSet positions = new BitSet(triggerActions.actions.length);
+        for (String token : command.getTokens()) {
+            BitSet withSubject = triggerActions.bySubject.get(symbols.idOf(token));
+            if (withSubject != null) {
+                positions.or(withSubject);
+            }
+        }
+        for (int position = positions.nextSetBit(0); position >= 0; position = positions.nextSetBit(position + 1)) {
+            candidates.add(triggerActions.actions[position]);
+        }
+        return candidates;
+    }
+
+    /* the actions for one trigger, and for each subject id the positions of the actions which use it*/
+    private static final class TriggerActions {
+        private final GameAction[] actions;
+        private final HashMap<Integer, BitSet> bySubject;
+
+        private TriggerActions(GameAction[] actions, HashMap<Integer, BitSet> bySubject) {
+            this.actions = actions;
+            this.bySubject = bySubject;
+        }
+    }
+}
@@ -1,64 +1,147 @@
 package edu.uob;
 
-import com.alexmerz.graphviz.ParseException;
-import org.w3c.dom.*;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.*;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.*;
 import java.util.*;
 
+/* This class reads the actions file in one forward pass with an XMLStreamReader, building each GameAction as soon
+ as its </action> is reached, so only the action being read is held in memory rather than the whole document.
+ Within an action the first <triggers>, <subjects>, <consumed>, <produced> and <narration> are used and the text of
+ each element is taken exactly as it is in the file. A file which is not well formed XML is reported as a
+ SAXException */
+
 public class ActionsParserAndLoader {
 
     private final HashMap<String, HashSet<GameAction>> actionsMap;
+    private final TriggerMatcher triggerMatcher;
 
     public ActionsParserAndLoader(File actionsFile) throws IOException, ParserConfigurationException, RuntimeException, SAXException, FileNotFoundException {
         actionsMap = new HashMap<>();
 
-        try (InputStream inputStream = new FileInputStream(actionsFile)) {
-
-            // make methods out of this ...
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(inputStream);
-            Element root = doc.getDocumentElement();
-            NodeList actionNodes = root.getElementsByTagName("action");
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(actionsFile))) {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("action")) {
+                        addAction(readAction(reader));
+                    }
+                }
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (XMLStreamException e) {
+            throw new SAXException(e.getMessage(), e);
+        }
+        /* built once every trigger is known, in the same order the triggers map hands them out*/
+        triggerMatcher = new TriggerMatcher(actionsMap.keySet());
+    }
 
-            for (int i = 0; i < actionNodes.getLength(); i++) {
-                Element actionNode = (Element) actionNodes.item(i);
-                List<String> triggers = getChildElementTextList(actionNode, "triggers", "keyphrase");
-                List<String> subjects = getChildElementTextList(actionNode, "subjects", "entity");
-                List<String> consumedEntities = getChildElementTextList(actionNode, "consumed", "entity");
-                List<String> producedEntities = getChildElementTextList(actionNode, "produced", "entity");
-                String narration = getChildElementText(actionNode, "narration");
-                GameAction action = new GameAction(triggers, subjects, consumedEntities, producedEntities, narration);
+    private void addAction(GameAction action) {
+        for (String trigger : action.getTriggers()) {
+            HashSet<GameAction> actionsForTrigger = actionsMap.computeIfAbsent(trigger, k -> new HashSet<>());
+            actionsForTrigger.add(action);
+        }
+    }
 
-                for (String trigger : triggers) {
-                    HashSet<GameAction> actionsForTrigger = actionsMap.computeIfAbsent(trigger, k -> new HashSet<>());
-                    actionsForTrigger.add(action);
+    /* reads from just after <action> up to its </action>*/
+    private GameAction readAction(XMLStreamReader reader) throws XMLStreamException, SAXException {
+        List<String> triggers = null;
+        List<String> subjects = null;
+        List<String> consumedEntities = null;
+        List<String> producedEntities = null;
+        String narration = null;
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            switch (reader.getLocalName()) {
+                case "triggers" -> triggers = readSectionOnce(reader, triggers, "keyphrase");
+                case "subjects" -> subjects = readSectionOnce(reader, subjects, "entity");
+                case "consumed" -> consumedEntities = readSectionOnce(reader, consumedEntities, "entity");
+                case "produced" -> producedEntities = readSectionOnce(reader, producedEntities, "entity");
+                case "narration" -> {
+                    String text = readText(reader);
+                    narration = narration == null ? text : narration;
                 }
+                default -> depth++;
             }
         }
+        if (triggers == null || subjects == null || consumedEntities == null || producedEntities == null || narration == null) {
+            throw new SAXException("Every action needs triggers, subjects, consumed, produced and narration elements");
+        }
+        return new GameAction(triggers, subjects, consumedEntities, producedEntities, narration);
     }
 
-    private List<String> getChildElementTextList(Element parentElement, String childElementName, String childNodeName) {
-        List<String> list = new ArrayList<>();
-        Element childElement = (Element) parentElement.getElementsByTagName(childElementName).item(0);
-        NodeList childNodes = childElement.getElementsByTagName(childNodeName);
+    /* reads a section such as <subjects>, or skips it if the action has already had one*/
+    private List<String> readSectionOnce(XMLStreamReader reader, List<String> alreadyRead, String itemName) throws XMLStreamException {
+        List<String> items = readSection(reader, itemName);
+        return alreadyRead == null ? items : alreadyRead;
+    }
 
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Element childNode = (Element) childNodes.item(i);
-            list.add(childNode.getTextContent());
+    /* reads from just after the section's start tag up to its end tag, returning the text of each item in it*/
+    private List<String> readSection(XMLStreamReader reader, String itemName) throws XMLStreamException {
+        List<String> items = new ArrayList<>();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+            else if (event == XMLStreamConstants.START_ELEMENT) {
+                if (reader.getLocalName().equals(itemName)) {
+                    items.add(readText(reader));
+                }
+                else {
+                    depth++;
+                }
+            }
         }
-        return list;
+        return items;
     }
 
-    private String getChildElementText(Element parentElement, String childElementName) {
-        Element childElement = (Element) parentElement.getElementsByTagName(childElementName).item(0);
-        return childElement.getTextContent();
+    /* returns all the text inside the current element, including any inside elements nested in it, and leaves the
+    * reader on its end tag*/
+    private String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+            else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE) {
+                text.append(reader.getText());
+            }
+        }
+        return text.toString();
     }
 
     public HashMap<String, HashSet<GameAction>> getActionsMap() {
         return this.actionsMap;
     }
+
+    public TriggerMatcher getTriggerMatcher() {
+        return this.triggerMatcher;
+    }
 }
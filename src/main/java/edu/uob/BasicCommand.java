@@ -0,0 +1,10 @@
+package edu.uob;
+
+/* One of the built in commands (get, drop, goto, look, inv and health). BasicCommandHandler keeps one of these
+ per verb and looks it up instead of switching on the verb for every command */
+
+@FunctionalInterface
+public interface BasicCommand {
+
+    String handle(CommandContext context);
+}
@@ -2,102 +2,110 @@ package edu.uob;
 
 import java.util.*;
 
-/*This class handles the basic commands given by the user*/
+/*This class handles the basic commands given by the user. It holds no state about any one command, so GameEngine
+builds one when it starts and uses it for every player. Each verb has its own BasicCommand, found through a table
+built once in the constructor, and what a command is about is passed in as a CommandContext*/
 
 public class BasicCommandHandler {
-    private final StagPlayer player;
-    private HashMap<String, StagArtefact> inventory;
-    private HashMap<String, StagArtefact> artefactsInLocation;
     private final GameMap gameMap;
+    private final PlayerMover mover;
+    private final Map<String, BasicCommand> commands;
 
-    public BasicCommandHandler(StagPlayer player, GameMap map){
-        this.player = player; this.gameMap = map;
+    public BasicCommandHandler(GameMap map){
+        this(map, PlayerMover.DIRECT);
+    }
+
+    public BasicCommandHandler(GameMap map, PlayerMover mover){
+        this.gameMap = map; this.mover = mover;
+        Map<String, BasicCommand> table = new HashMap<>();
+        table.put("inventory", this::inventoryCommand);
+        table.put("inv", this::inventoryCommand);
+        table.put("get", this::getCommand);
+        table.put("drop", this::dropCommand);
+        table.put("goto", this::gotoCommand);
+        table.put("look", this::lookCommand);
+        table.put("health", this::healthCommand);
+        this.commands = Map.copyOf(table);
+    }
+
+    /* checks whether the word is one of the basic command verbs*/
+    public boolean isBasicCommand(String word) {
+        return commands.containsKey(word);
     }
 
     /* method handles any basic inbuilt commands*/
-    public String handleCommand(String command) {
-        String[] tokens = command.split(" ");
-        String[] basicCommands = {"inventory", "inv", "get", "drop", "goto", "look", "health"};
-        int verbIndex = checkForBasicCommand(basicCommands, tokens);
-        String inBuiltCommand = tokens[verbIndex];
-        String entity = getEntityFromCommand(command);
-
-        if (verbIndex == -1) {
+    public String handleCommand(StagPlayer player, String command) {
+        return handleCommand(player, CommandTokens.parse(command));
+    }
+
+    /* same as above for a command which has already been split up by GameEngine*/
+    public String handleCommand(StagPlayer player, CommandTokens commandTokens) {
+        BasicCommand basicCommand = null;
+        for (String token : commandTokens.getTokens()) {
+            basicCommand = commands.get(token);
+            if (basicCommand != null) {
+                break;
+            }
+        }
+        if (basicCommand == null) {
             return "Invalid command- Unknown command.";
         }
+        String entity = getEntityFromCommand(player, commandTokens);
+        return basicCommand.handle(new CommandContext(player, commandTokens, entity));
+    }
 
-        switch (inBuiltCommand) {
-            case "inventory", "inv" -> {
-                if(entitiesPresent(command)){
-                    return "Invalid command- Do not include other entities when looking up player's inventory";
-                }
-                return handleInventory();
-            }
-            case "get" -> {
-                if (entity.isEmpty()) {
-                    return "Invalid command- Please specify an artefact to get.";
-                }
-                if(checkForMultipleEntities(command)){
-                    return "Invalid command- You cannot pick up this/these items";
-                }
-                return handleGet(entity);
-            }
-            case "drop" -> {
-                if (entity.isEmpty()) {
-                    return "Invalid command- Please specify an artefact to drop.";
-                }
-                if(checkForMultipleEntities(command)){
-                    return "Invalid command- You either cannot drop two items at once OR you do not have that entity to drop";
-                }
-                return handleDrop(entity);
-            }
-            case "goto" -> {
-                if (entity.isEmpty()) {
-                    return "Invalid command- Please specify a location to go to.";
-                }
-                if(checkForMultipleEntities(command)){
-                    return "Invalid command- You can only go to one location at a time";
-                }
-                return handleGoto(entity);
-            }
-            case "look" -> {
-                if(entitiesPresent(command)){
-                    return "Invalid command- Do not include other entities when looking around";
-                }
-                return handleLook();
-            }
-            case "health" -> {
-                if(entitiesPresent(command)){
-                    return "Invalid command- Do not include other entities when getting your health";
-                }
-                return handleHealth();
-            }
-            default -> {
-                return "Invalid command- Unknown command.";
-            }
+    private String inventoryCommand(CommandContext context) {
+        if(entitiesPresent(context.getCommand())){
+            return "Invalid command- Do not include other entities when looking up player's inventory";
         }
+        return handleInventory(context.getPlayer());
     }
 
-    /* handles the inventory command*/
-    private String handleInventory() {
-        inventory = player.getInventory();
-        StringBuilder inventoryString = new StringBuilder();
-        for (Map.Entry<String, StagArtefact> entry : inventory.entrySet()) {
-            inventoryString.append(entry.getKey());
-            inventoryString.append(": ");
-            inventoryString.append(entry.getValue().getDescription());
-            inventoryString.append("\n");
+    private String getCommand(CommandContext context) {
+        if (context.getEntity().isEmpty()) {
+            return "Invalid command- Please specify an artefact to get.";
         }
-        if(inventory == null){
-            return "You have no items in your inventory";
+        return handleGet(context.getPlayer(), context.getEntity());
+    }
+
+    private String dropCommand(CommandContext context) {
+        if (context.getEntity().isEmpty()) {
+            return "Invalid command- Please specify an artefact to drop.";
         }
-        return inventoryString.toString();
+        return handleDrop(context.getPlayer(), context.getEntity());
+    }
+
+    private String gotoCommand(CommandContext context) {
+        if (context.getEntity().isEmpty()) {
+            return "Invalid command- Please specify a location to go to.";
+        }
+        return handleGoto(context.getPlayer(), context.getEntity());
+    }
+
+    private String lookCommand(CommandContext context) {
+        if(entitiesPresent(context.getCommand())){
+            return "Invalid command- Do not include other entities when looking around";
+        }
+        return handleLook(context.getPlayer());
+    }
+
+    private String healthCommand(CommandContext context) {
+        if(entitiesPresent(context.getCommand())){
+            return "Invalid command- Do not include other entities when getting your health";
+        }
+        return handleHealth(context.getPlayer());
+    }
+
+    /* handles the inventory command. Like look and health it is answered from the player's latest snapshot,
+    * so it never needs to lock anything*/
+    private String handleInventory(StagPlayer player) {
+        return player.getSnapshot().getInventoryText();
     }
 
     /* handles the get command*/
-    private String handleGet(String entity) {
+    private String handleGet(StagPlayer player, String entity) {
 
-        artefactsInLocation = player.getLocation().getArtefacts();
+        HashMap<String, StagArtefact> artefactsInLocation = player.getLocation().getArtefacts();
         if(artefactsInLocation.containsKey(entity)){
             StagArtefact artefact = artefactsInLocation.get(entity);
             player.addToInventory(artefact);
@@ -108,7 +116,7 @@ public class BasicCommandHandler {
     }
 
     /* handles the drop command*/
-    private String handleDrop(String entity) {
+    private String handleDrop(StagPlayer player, String entity) {
 
         if(player.hasArtefact(entity)){
             StagArtefact artefact = player.getArtefactByName(entity);
@@ -120,55 +128,45 @@ public class BasicCommandHandler {
     }
 
     /* this method handles the goto command*/
-    private String handleGoto(String entity) {
+    private String handleGoto(StagPlayer player, String entity) {
 
         // need to first check whether the exit is in the location the player is in
         if(player.getLocation().containsExit(entity)){
-            player.getLocation().removePlayer(player.getName());
             StagLocation newLocation = player.getLocation().getExit(entity);
-            player.setLocation(newLocation);
-            newLocation.addPlayer(player.getName(), player);
+            mover.movePlayer(player, player.getLocation(), newLocation);
             return "You go into a " + newLocation.getName();
         }
         return "Invalid command- You cannot go to that Location OR you cannot go to multiple locations at a time";
     }
 
-    /* this method handles the look command. It will remove the player and their description before the response
-    * goes back to the user. This way users will only see other players*/
-    private String handleLook() {
-
-        String look = player.getLocation().toString();
-        String playerName = player.getName();
-        String description = player.getDescription();
-
-        if (look.contains(playerName)) {
-            look = look.replace(playerName, "");
-            look = look.replace(description, "");
-        }
+    /* this method handles the look command. The player's own line is left out of the location's cached text
+    * before the response goes back to the user. This way users will only see other players*/
+    private String handleLook(StagPlayer player) {
 
-        return look;
+        return player.getLocation().getSnapshot().viewFor(player.getName());
     }
 
     /* this method handles the health command*/
-    private String handleHealth(){
+    private String handleHealth(StagPlayer player){
 
-        int health = player.getHealth();
+        int health = player.getSnapshot().getHealth();
         return "You have " + health + " health points left";
     }
 
 
-    /* this method will get the entity from the basic command*/
-    public String getEntityFromCommand(String command) {
-        List<String> entities = gameMap.getEntities();
-        HashMap<String, StagArtefact> inventory = player.getInventory();
-        List<String> allEntities = new ArrayList<>();
-        allEntities.addAll(entities);
-        allEntities.addAll(inventory.keySet());
+    /* this method will get the entity from the basic command. A command naming more than one entity gives
+    * "invalid", which get, drop and goto then reject*/
+    public String getEntityFromCommand(StagPlayer player, String command) {
+        return getEntityFromCommand(player, CommandTokens.parse(command));
+    }
+
+    public String getEntityFromCommand(StagPlayer player, CommandTokens commandTokens) {
+        EntitySymbols symbols = gameMap.getSymbols();
+        Set<String> inventoryNames = player.getSnapshot().getInventoryNames();
 
         String entity = null;
-        String[] tokens = command.split("\\s+|:\\s*");
-        for (String token : tokens) {
-            if (allEntities.contains(token)) {
+        for (String token : commandTokens.getWords()) {
+            if (symbols.contains(token) || inventoryNames.contains(token)) {
                 if (entity != null) {
                     return "invalid";
                 }
@@ -178,47 +176,9 @@ public class BasicCommandHandler {
         return entity != null ? entity : "invalid";
     }
 
-    /* this method will locate the location of the basic command in the user command*/
-    public int checkForBasicCommand(String[] basicCommands, String[] tokens) {
-        int verbIndex = -1;
-        for (int i = 0; i < tokens.length; i++) {
-            if (Arrays.asList(basicCommands).contains(tokens[i])) {
-                verbIndex = i;
-                break;
-            }
-        }
-        return verbIndex;
-    }
-
-
     /* this method checks if there are entities present inside the command*/
     public boolean entitiesPresent(String command) {
-        List<String> entities = gameMap.getEntities();
-        for (String entity : entities) {
-            if (command.contains(entity)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-   /* this method checks for the presence of multiple entities in the user command*/
-    /* if there are, the command will be rejected and an appropriate response will be given back*/
-    public boolean checkForMultipleEntities(String command) {
-        Set<String> uniqueEntities = new HashSet<>(gameMap.getEntities());
-        List<String> newEntities = new ArrayList<>(uniqueEntities);
-        int count = 0;
-        Set<String> countedEntities = new HashSet<>();
-        for (String entity : newEntities) {
-            if (entity.equals(command) && !countedEntities.contains(entity)) {
-                count++;
-                countedEntities.add(entity);
-                if (count > 1) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return gameMap.mentionsEntity(command);
     }
 
 }
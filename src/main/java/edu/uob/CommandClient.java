@@ -0,0 +1,17 @@
+package edu.uob;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/* A client session with the game server for a single player. It is implemented by the line protocol
+ GameClient and by FramedGameClient, so tools can drive the server with either wire protocol */
+
+public interface CommandClient extends Closeable {
+
+    /* sends one command for this client's player and returns the response*/
+    String sendCommand(String command) throws IOException;
+
+    /* sends all the commands without waiting for each reply and returns the responses in the same order*/
+    List<String> sendCommands(List<String> commands) throws IOException;
+}
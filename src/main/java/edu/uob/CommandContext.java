@@ -0,0 +1,35 @@
+package edu.uob;
+
+/* Everything one basic command needs to know about the request it is handling: who sent it, the command split
+ up by CommandTokens and the entity named in it. The handlers themselves hold no per-request state, so GameEngine
+ builds them once and passes one of these in with every command */
+
+public final class CommandContext {
+
+    private final StagPlayer player;
+    private final CommandTokens tokens;
+    private final String entity;
+
+    public CommandContext(StagPlayer player, CommandTokens tokens, String entity) {
+        this.player = player;
+        this.tokens = tokens;
+        this.entity = entity;
+    }
+
+    public StagPlayer getPlayer() {
+        return player;
+    }
+
+    public CommandTokens getTokens() {
+        return tokens;
+    }
+
+    public String getCommand() {
+        return tokens.getCommand();
+    }
+
+    /* the one entity named in the command, or "invalid" if there is none or more than one*/
+    public String getEntity() {
+        return entity;
+    }
+}
@@ -0,0 +1,23 @@
+package edu.uob;
+
+import java.util.concurrent.CompletableFuture;
+
+/* The hand-off point between the network listeners and the game engine. It is implemented by GameStateExecutor,
+ which runs commands on one or more game-state threads, and by LocationShards, which runs each command on the
+ event loop owning the player's location. A full executor answers with GameStateExecutor.SERVER_BUSY */
+
+public interface CommandExecutor {
+
+    /* queues the command and returns a future holding its response*/
+    CompletableFuture<String> submit(String command);
+
+    /* queues the command once the previous command from the same connection has finished*/
+    CompletableFuture<String> submitAfter(CompletableFuture<String> previous, String command);
+
+    /* queues the command and waits for its response*/
+    String execute(String command) throws InterruptedException;
+
+    QueueMetrics getMetrics();
+
+    void shutdown();
+}
@@ -0,0 +1,161 @@
+package edu.uob;
+
+import java.util.Arrays;
+
+/* A command parsed once, up front, and handed through GameEngine, BasicCommandHandler and ActionExecutor so
+ none of them has to split it again. The command is walked once and gives:
+
+ - the username: everything before the first space or ": "
+ - the tokens: the command split on single spaces, exactly as command.split(" ") would, with each token's
+   offset into the command
+ - the words: the command split on runs of whitespace or a colon plus any whitespace after it, exactly as
+   command.split("\\s+|:\\s*") would. This is how entities are picked out of a command
+
+ Both splits keep String.split's rules: a leading empty token is kept, trailing empty tokens are dropped and a
+ command with no separator at all is a single token */
+
+public final class CommandTokens {
+
+    private final String command;
+    private final String username;
+    private final String[] tokens;
+    private final int[] offsets;
+    private final String[] words;
+
+    private CommandTokens(String command, String username, String[] tokens, int[] offsets, String[] words) {
+        this.command = command;
+        this.username = username;
+        this.tokens = tokens;
+        this.offsets = offsets;
+        this.words = words;
+    }
+
+    public static CommandTokens parse(String command) {
+        int length = command.length();
+        /* there can be at most one more token or word than there are characters*/
+        String[] tokens = new String[length + 1];
+        int[] offsets = new int[tokens.length];
+        String[] words = new String[tokens.length];
+        int tokenCount = 0;
+        int keptTokens = 0;
+        int tokenStart = 0;
+        int wordCount = 0;
+        int keptWords = 0;
+        int wordStart = 0;
+        boolean sawWordSeparator = false;
+        int i = 0;
+        while (i < length) {
+            char next = command.charAt(i);
+            if (next == ' ') {
+                offsets[tokenCount] = tokenStart;
+                tokens[tokenCount++] = command.substring(tokenStart, i);
+                if (i > tokenStart) {
+                    keptTokens = tokenCount;
+                }
+                tokenStart = i + 1;
+            }
+            /* the word separators are a run of whitespace, or a colon followed by any whitespace*/
+            int separatorEnd = i;
+            if (isWhitespace(next)) {
+                while (separatorEnd < length && isWhitespace(command.charAt(separatorEnd))) {
+                    separatorEnd++;
+                }
+            }
+            else if (next == ':') {
+                separatorEnd++;
+                while (separatorEnd < length && isWhitespace(command.charAt(separatorEnd))) {
+                    separatorEnd++;
+                }
+            }
+            if (separatorEnd > i) {
+                sawWordSeparator = true;
+                words[wordCount++] = command.substring(wordStart, i);
+                if (i > wordStart) {
+                    keptWords = wordCount;
+                }
+                wordStart = separatorEnd;
+                /* the spaces inside a word separator still split tokens*/
+                for (int j = i + 1; j < separatorEnd; j++) {
+                    if (command.charAt(j) == ' ') {
+                        offsets[tokenCount] = tokenStart;
+                        tokens[tokenCount++] = command.substring(tokenStart, j);
+                        if (j > tokenStart) {
+                            keptTokens = tokenCount;
+                        }
+                        tokenStart = j + 1;
+                    }
+                }
+                i = separatorEnd;
+            }
+            else {
+                i++;
+            }
+        }
+        if (tokenStart < length || tokenCount == 0) {
+            offsets[tokenCount] = tokenStart;
+            tokens[tokenCount++] = command.substring(tokenStart);
+            keptTokens = tokenCount;
+        }
+        if (wordStart < length || !sawWordSeparator) {
+            words[wordCount++] = command.substring(wordStart);
+            keptWords = wordCount;
+        }
+        return new CommandTokens(command, usernameOf(command), Arrays.copyOf(tokens, keptTokens),
+                Arrays.copyOf(offsets, keptTokens), Arrays.copyOf(words, keptWords));
+    }
+
+    /* the username is everything before the first space or ": ". This only looks at the start of the command,
+    * so it is also used on its own to find which player a command belongs to*/
+    public static String usernameOf(String command) {
+        int end = command.indexOf(' ');
+        if (end > 0 && command.charAt(end - 1) == ':') {
+            end--;
+        }
+        return end < 0 ? command : command.substring(0, end);
+    }
+
+    /* the characters matched by \s in a regex*/
+    private static boolean isWhitespace(char next) {
+        return next == ' ' || next == '\t' || next == '\n' || next == '\u000B' || next == '\f' || next == '\r';
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    /* the command split on single spaces*/
+    public String[] getTokens() {
+        return tokens;
+    }
+
+    public int getTokenCount() {
+        return tokens.length;
+    }
+
+    public String getToken(int index) {
+        return tokens[index];
+    }
+
+    /* where the token starts in the command*/
+    public int getOffset(int index) {
+        return offsets[index];
+    }
+
+    public boolean containsToken(String token) {
+        for (String next : tokens) {
+            if (next.equals(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* the command split into words, for picking out entities*/
+    public String[] getWords() {
+        return words;
+    }
+}
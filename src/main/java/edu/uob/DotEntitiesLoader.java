@@ -0,0 +1,429 @@
+package edu.uob;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.alexmerz.graphviz.ParseException;
+
+/* This class reads an entities file straight into StagLocations in one pass over the characters, without building
+ the Graph, Node and Edge objects the general graphviz Parser does. It understands the part of DOT which STAG uses
+ and reads it the way GameMap reads the parsed Graph:
+
+ - the first subgraph of the document holds the locations and the second holds the paths, whatever they are called
+ - each subgraph of the locations is one location, named by the first node in it
+ - the characters, artefacts and furniture subgraphs of a location hold its entities
+ - every edge in the paths is an exit from one location to another
+ - location and entity names are lower cased, and everything else (node defaults, graph attributes and any other
+   subgraphs) is read and skipped
+
+ Only one location's entities are held at a time before they are put into it. Anything which is not valid DOT is
+ reported as a ParseException with the line it was found on */
+
+public class DotEntitiesLoader {
+
+    private static final int END = 0;
+    private static final int ID = 1;
+    private static final int PUNCTUATION = 2;
+    private static final int EDGE_OP = 3;
+
+    private final Reader reader;
+    private int peeked = -2;
+    private int line = 1;
+    /* the current token*/
+    private int tokenType;
+    private String tokenText;
+    private boolean tokenQuoted;
+
+    private final Map<String, StagLocation> locations = new LinkedHashMap<>();
+    private final List<String[]> paths = new ArrayList<>();
+    private int topLevelSubgraphs = 0;
+
+    private enum Section { DOCUMENT, LOCATIONS, LOCATION, CHARACTERS, ARTEFACTS, FURNITURE, PATHS, IGNORED }
+
+    /* the location being read and the entities found in it so far. The location node does not have to come
+    * before its entity subgraphs, so the entities wait here until the location's closing brace*/
+    private static final class PendingLocation {
+        private String name;
+        private String description;
+        private final List<GameEntity> entities = new ArrayList<>();
+    }
+
+    public DotEntitiesLoader(File entitiesFile) throws IOException, ParseException, FileNotFoundException {
+        try (Reader fileReader = new BufferedReader(new FileReader(entitiesFile), 1 << 16)) {
+            this.reader = fileReader;
+            advance();
+            parseGraph();
+        }
+        for (String[] path : paths) {
+            StagLocation source = locations.get(path[0]);
+            StagLocation destination = locations.get(path[1]);
+            if (source == null || destination == null) {
+                throw new ParseException("There is a path between " + path[0] + " and " + path[1]
+                        + " but one of them is not a location");
+            }
+            source.addExit(path[1], destination);
+        }
+    }
+
+    /* the locations in the order they are in the file, each holding its entities and exits*/
+    public List<StagLocation> getLocations() {
+        return new ArrayList<>(locations.values());
+    }
+
+    private void parseGraph() throws IOException, ParseException {
+        if (isKeyword("strict")) {
+            advance();
+        }
+        if (!isKeyword("digraph") && !isKeyword("graph")) {
+            throw error("expected digraph or graph");
+        }
+        advance();
+        if (tokenType == ID) {
+            advance();
+        }
+        parseBlock(Section.DOCUMENT, null);
+        if (tokenType != END) {
+            throw error("expected the end of the file");
+        }
+    }
+
+    /* reads from an opening brace to its closing brace*/
+    private void parseBlock(Section section, PendingLocation location) throws IOException, ParseException {
+        expect("{");
+        while (!isPunctuation("}")) {
+            if (tokenType == END) {
+                throw error("expected }");
+            }
+            parseStatement(section, location);
+            if (isPunctuation(";")) {
+                advance();
+            }
+        }
+        advance();
+    }
+
+    private void parseStatement(Section section, PendingLocation location) throws IOException, ParseException {
+        if (isKeyword("subgraph") || isPunctuation("{")) {
+            String id = null;
+            if (isKeyword("subgraph")) {
+                advance();
+                if (tokenType == ID) {
+                    id = tokenText;
+                    advance();
+                }
+            }
+            parseSubgraph(section, location, id);
+            return;
+        }
+        if (isKeyword("graph") || isKeyword("node") || isKeyword("edge")) {
+            advance();
+            parseAttributes();
+            return;
+        }
+        if (tokenType != ID) {
+            throw error("expected a statement");
+        }
+        String first = tokenText;
+        advance();
+        if (isPunctuation("=")) {
+            advance();
+            expectId();
+            return;
+        }
+        skipPort();
+        if (tokenType == EDGE_OP) {
+            String from = first;
+            while (tokenType == EDGE_OP) {
+                advance();
+                String to = expectId();
+                skipPort();
+                if (section == Section.PATHS) {
+                    paths.add(new String[] {from.toLowerCase(Locale.ROOT), to.toLowerCase(Locale.ROOT)});
+                }
+                from = to;
+            }
+            parseAttributes();
+            return;
+        }
+        String description = parseAttributes();
+        addNode(section, location, first.toLowerCase(Locale.ROOT), description);
+    }
+
+    private void parseSubgraph(Section parent, PendingLocation parentLocation, String id) throws IOException, ParseException {
+        Section section = Section.IGNORED;
+        PendingLocation location = null;
+        if (parent == Section.DOCUMENT) {
+            int index = topLevelSubgraphs++;
+            section = index == 0 ? Section.LOCATIONS : index == 1 ? Section.PATHS : Section.IGNORED;
+        }
+        else if (parent == Section.LOCATIONS) {
+            section = Section.LOCATION;
+            location = new PendingLocation();
+        }
+        else if (parent == Section.LOCATION && id != null) {
+            section = switch (id) {
+                case "characters" -> Section.CHARACTERS;
+                case "artefacts" -> Section.ARTEFACTS;
+                case "furniture" -> Section.FURNITURE;
+                default -> Section.IGNORED;
+            };
+            location = parentLocation;
+        }
+        parseBlock(section, location);
+        if (section == Section.LOCATION) {
+            addLocation(location);
+        }
+    }
+
+    private void addNode(Section section, PendingLocation location, String name, String description) {
+        switch (section) {
+            case LOCATION -> {
+                if (location.name == null) {
+                    location.name = name;
+                    location.description = description;
+                }
+            }
+            case CHARACTERS -> {
+                StagCharacter character = new StagCharacter(name, description);
+                character.setType();
+                location.entities.add(character);
+            }
+            case ARTEFACTS -> {
+                StagArtefact artefact = new StagArtefact(name, description);
+                artefact.setType();
+                location.entities.add(artefact);
+            }
+            case FURNITURE -> {
+                StagFurniture furniture = new StagFurniture(name, description);
+                furniture.setType();
+                location.entities.add(furniture);
+            }
+            default -> { }
+        }
+    }
+
+    private void addLocation(PendingLocation pending) throws ParseException {
+        if (pending.name == null) {
+            throw error("a location has no node naming it");
+        }
+        StagLocation location = new StagLocation(pending.name, pending.description);
+        location.setEntityType();
+        for (GameEntity entity : pending.entities) {
+            if (entity instanceof StagCharacter) {
+                location.addCharacter(entity.getName(), (StagCharacter) entity);
+            }
+            else if (entity instanceof StagArtefact) {
+                location.addArtefact(entity.getName(), (StagArtefact) entity);
+            }
+            else if (entity instanceof StagFurniture) {
+                location.addFurniture(entity.getName(), (StagFurniture) entity);
+            }
+        }
+        locations.put(pending.name, location);
+    }
+
+    /* reads any number of [name = value, ...] lists and returns the last description in them, or null*/
+    private String parseAttributes() throws IOException, ParseException {
+        String description = null;
+        while (isPunctuation("[")) {
+            advance();
+            while (!isPunctuation("]")) {
+                String name = expectId();
+                String value = null;
+                if (isPunctuation("=")) {
+                    advance();
+                    value = expectId();
+                }
+                if (name.equals("description")) {
+                    description = value;
+                }
+                if (isPunctuation(",") || isPunctuation(";")) {
+                    advance();
+                }
+            }
+            advance();
+        }
+        return description;
+    }
+
+    /* node:port and node:port:compass are allowed on nodes and edges, and the port is not needed*/
+    private void skipPort() throws IOException, ParseException {
+        while (isPunctuation(":")) {
+            advance();
+            expectId();
+        }
+    }
+
+    private String expectId() throws IOException, ParseException {
+        if (tokenType != ID) {
+            throw error("expected a name");
+        }
+        String id = tokenText;
+        advance();
+        return id;
+    }
+
+    private void expect(String punctuation) throws IOException, ParseException {
+        if (!isPunctuation(punctuation)) {
+            throw error("expected " + punctuation);
+        }
+        advance();
+    }
+
+    private boolean isPunctuation(String punctuation) {
+        return tokenType == PUNCTUATION && tokenText.equals(punctuation);
+    }
+
+    /* DOT keywords are not case sensitive, and a quoted name is never a keyword*/
+    private boolean isKeyword(String keyword) {
+        return tokenType == ID && !tokenQuoted && tokenText.equalsIgnoreCase(keyword);
+    }
+
+    private ParseException error(String message) {
+        String found = tokenType == END ? "the end of the file" : "'" + tokenText + "'";
+        return new ParseException("Line " + line + ": " + message + " but found " + found);
+    }
+
+    //  === Everything below splits the file into tokens. ===
+
+    private int read() throws IOException {
+        int next;
+        if (peeked != -2) {
+            next = peeked;
+            peeked = -2;
+        }
+        else {
+            next = reader.read();
+        }
+        if (next == '\n') {
+            line++;
+        }
+        return next;
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = reader.read();
+        }
+        return peeked;
+    }
+
+    /* moves on to the next token, skipping whitespace and comments*/
+    private void advance() throws IOException, ParseException {
+        tokenQuoted = false;
+        int next = read();
+        while (true) {
+            if (next == -1) {
+                tokenType = END;
+                tokenText = "";
+                return;
+            }
+            if (Character.isWhitespace(next)) {
+                next = read();
+            }
+            else if (next == '#' || (next == '/' && peek() == '/')) {
+                while (next != -1 && next != '\n') {
+                    next = read();
+                }
+            }
+            else if (next == '/' && peek() == '*') {
+                read();
+                int previous = 0;
+                next = read();
+                while (next != -1 && !(previous == '*' && next == '/')) {
+                    previous = next;
+                    next = read();
+                }
+                if (next == -1) {
+                    throw new ParseException("Line " + line + ": a comment is never closed");
+                }
+                next = read();
+            }
+            else {
+                break;
+            }
+        }
+        if (next == '"') {
+            readQuoted();
+        }
+        else if (next == '<') {
+            readHtml();
+        }
+        else if (next == '-' && (peek() == '>' || peek() == '-')) {
+            read();
+            tokenType = EDGE_OP;
+            tokenText = "->";
+        }
+        else if (isIdCharacter(next) || next == '-') {
+            StringBuilder id = new StringBuilder();
+            id.append((char) next);
+            while (isIdCharacter(peek())) {
+                id.append((char) read());
+            }
+            tokenType = ID;
+            tokenText = id.toString();
+        }
+        else if ("{}[]=;,:".indexOf(next) >= 0) {
+            tokenType = PUNCTUATION;
+            tokenText = String.valueOf((char) next);
+        }
+        else {
+            throw new ParseException("Line " + line + ": unexpected character '" + (char) next + "'");
+        }
+    }
+
+    private static boolean isIdCharacter(int next) {
+        return next >= 0 && (Character.isLetterOrDigit(next) || next == '_' || next == '.' || next >= 128);
+    }
+
+    /* a quoted name may have \" inside it. Any other backslash is kept as it is*/
+    private void readQuoted() throws IOException, ParseException {
+        StringBuilder text = new StringBuilder();
+        int next = read();
+        while (next != '"') {
+            if (next == -1) {
+                throw new ParseException("Line " + line + ": a quoted name is never closed");
+            }
+            if (next == '\\' && peek() == '"') {
+                next = read();
+            }
+            text.append((char) next);
+            next = read();
+        }
+        tokenType = ID;
+        tokenQuoted = true;
+        tokenText = text.toString();
+    }
+
+    /* an HTML name is everything between matching angle brackets*/
+    private void readHtml() throws IOException, ParseException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        int next = read();
+        while (true) {
+            if (next == -1) {
+                throw new ParseException("Line " + line + ": an HTML name is never closed");
+            }
+            if (next == '<') {
+                depth++;
+            }
+            else if (next == '>' && --depth == 0) {
+                break;
+            }
+            text.append((char) next);
+            next = read();
+        }
+        tokenType = ID;
+        tokenQuoted = true;
+        tokenText = text.toString();
+    }
+}
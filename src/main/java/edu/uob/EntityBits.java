@@ -0,0 +1,109 @@
+package edu.uob;
+
+import java.util.Arrays;
+
+/* A set of entity ids kept as bits in a long[], one bit per id from EntitySymbols. Locations and players keep one
+ of these for what they hold and each GameAction keeps one for its subjects, so checking whether an action can be
+ done is a subset test over a handful of words rather than a map lookup per subject.
+
+ The array grows when a larger id is set. Like the maps it sits next to, it is only changed by whoever holds the
+ owning location or player */
+
+public final class EntityBits {
+
+    private static final long[] NO_WORDS = new long[0];
+
+    private long[] words;
+
+    public EntityBits() {
+        this.words = NO_WORDS;
+    }
+
+    /* sized for every id below entityCount, so setting them never grows the array*/
+    public EntityBits(int entityCount) {
+        this.words = entityCount > 0 ? new long[wordIndex(entityCount - 1) + 1] : NO_WORDS;
+    }
+
+    public static EntityBits of(int[] ids) {
+        EntityBits bits = new EntityBits();
+        for (int id : ids) {
+            bits.set(id);
+        }
+        return bits;
+    }
+
+    private static int wordIndex(int id) {
+        return id >>> 6;
+    }
+
+    /* ids below zero are names which are not entities, and are never in the set*/
+    public void set(int id) {
+        if (id < 0) {
+            return;
+        }
+        int index = wordIndex(id);
+        if (index >= words.length) {
+            words = Arrays.copyOf(words, Math.max(index + 1, words.length * 2));
+        }
+        words[index] |= 1L << id;
+    }
+
+    public void clear(int id) {
+        if (id < 0) {
+            return;
+        }
+        int index = wordIndex(id);
+        if (index < words.length) {
+            words[index] &= ~(1L << id);
+        }
+    }
+
+    public void clearAll() {
+        Arrays.fill(words, 0L);
+    }
+
+    public boolean get(int id) {
+        if (id < 0) {
+            return false;
+        }
+        int index = wordIndex(id);
+        return index < words.length && (words[index] & (1L << id)) != 0;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* checks whether every id in this set is in first or second, or is the one extra id. This is the whole of
+    * an action's location and inventory check: its subjects against the inventory, the location's contents and
+    * the location itself*/
+    public boolean isSubsetOf(EntityBits first, EntityBits second, int extraId) {
+        long[] firstWords = first.words;
+        long[] secondWords = second.words;
+        int extraIndex = extraId < 0 ? -1 : wordIndex(extraId);
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            if (word == 0) {
+                continue;
+            }
+            if (i < firstWords.length) {
+                word &= ~firstWords[i];
+            }
+            if (i < secondWords.length) {
+                word &= ~secondWords[i];
+            }
+            if (i == extraIndex) {
+                word &= ~(1L << extraId);
+            }
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,55 @@
+package edu.uob;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/* The symbol table of every entity name in the game. GameMap fills it in while loading, giving each location,
+ artefact, character and piece of furniture a dense int id in the order they are first seen. Entities and the
+ subjects of actions carry these ids, so checks on the hot path compare ints instead of hashing strings. A name
+ which is not an entity (such as "health" or a player's name) has no id, and idOf returns NO_ID for it */
+
+public final class EntitySymbols {
+
+    public static final int NO_ID = -1;
+
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    /* returns the name's id, giving it the next one if it has not been seen before*/
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        ids.put(name, names.size());
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        return id == null ? NO_ID : id;
+    }
+
+    public String nameOf(int id) {
+        return names.get(id);
+    }
+
+    public boolean contains(String name) {
+        return ids.containsKey(name);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    /* turns a list of names into their ids. Names which are not entities get NO_ID*/
+    public int[] idsOf(List<String> entityNames) {
+        int[] result = new int[entityNames.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = idOf(entityNames.get(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,93 @@
+package edu.uob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/* This class is the client side of the FramedProtocol. It opens one connection, performs the handshake and then
+ sends every command as a length-prefixed frame. Commands and responses are encoded into and decoded from two
+ reusable buffers, so a whole batch of commands goes out with a single write. Only the selector and
+ thread-per-connection listeners understand the handshake, the blocking listener does not */
+
+public final class FramedGameClient implements CommandClient {
+
+    private static final int BUFFER_SIZE = 4096;
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 5000;
+
+    private final String username;
+    private final Socket socket;
+    private final InputStream socketInput;
+    private final OutputStream socketOutput;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    public FramedGameClient(String host, int portNumber, String username) throws IOException {
+        this.username = username;
+        this.socket = new Socket(host, portNumber);
+        try {
+            socket.setTcpNoDelay(true);
+            this.socketInput = socket.getInputStream();
+            this.socketOutput = socket.getOutputStream();
+            handshake();
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /* sends the handshake byte and waits for the server to answer with the same byte*/
+    private void handshake() throws IOException {
+        socketOutput.write(FramedProtocol.HANDSHAKE);
+        socketOutput.flush();
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+        try {
+            int reply = socketInput.read();
+            if ((byte) reply != FramedProtocol.HANDSHAKE) {
+                throw new IOException("Server does not support the framed protocol");
+            }
+        } catch (SocketTimeoutException e) {
+            throw new IOException("Server does not support the framed protocol");
+        }
+        socket.setSoTimeout(0);
+    }
+
+    @Override
+    public String sendCommand(String command) throws IOException {
+        return sendCommands(List.of(command)).get(0);
+    }
+
+    /* encodes every command into the write buffer, sends them with one write and then reads one response frame
+    * per command*/
+    @Override
+    public List<String> sendCommands(List<String> commands) throws IOException {
+        writeBuffer.clear();
+        for (String command : commands) {
+            writeBuffer = FramedProtocol.appendFrame(writeBuffer, FramedProtocol.COMMAND, username + ": " + command);
+        }
+        socketOutput.write(writeBuffer.array(), 0, writeBuffer.position());
+        socketOutput.flush();
+        List<String> responses = new ArrayList<>(commands.size());
+        while (responses.size() < commands.size()) {
+            ByteBuffer frame = FramedProtocol.readFrame(socketInput, readBuffer);
+            if (frame == null) {
+                throw new IOException("Server disconnected (end-of-stream)");
+            }
+            readBuffer = frame;
+            if (FramedProtocol.opcode(readBuffer) != FramedProtocol.RESPONSE) {
+                throw new IOException("Unexpected frame opcode " + FramedProtocol.opcode(readBuffer));
+            }
+            responses.add(FramedProtocol.takePayload(readBuffer));
+        }
+        return responses;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
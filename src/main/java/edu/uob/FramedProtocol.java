@@ -0,0 +1,99 @@
+package edu.uob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/* This class holds the constants and helpers of the framed wire protocol, the binary alternative to the
+ newline plus END_OF_TRANSMISSION line protocol. A client asks for it by sending the HANDSHAKE byte as the very
+ first byte of a connection (it can never start a UTF-8 line) and the server answers with the same byte.
+ After that, every message in both directions is one frame:
+
+     [payload length: 4 byte big-endian int][opcode: 1 byte][payload: UTF-8 bytes]
+
+ so a whole command or response can be moved with a single read or write and no scanning for delimiters */
+
+public final class FramedProtocol {
+
+    public static final byte HANDSHAKE = (byte) 0xFB;
+    public static final int HEADER_LENGTH = 5;
+    public static final int MAX_PAYLOAD_LENGTH = 1024 * 1024;
+
+    /* client to server: the payload is a "username: command" line without the newline*/
+    public static final byte COMMAND = 1;
+    /* server to client: the payload is the response to one command*/
+    public static final byte RESPONSE = 2;
+
+    private FramedProtocol() {
+    }
+
+    /* appends one frame to a buffer which is ready for writing, growing it if the frame does not fit. The
+    * buffer that holds the frame is returned, so callers must keep the returned reference*/
+    public static ByteBuffer appendFrame(ByteBuffer buffer, byte opcode, String payload) {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer target = ensureRemaining(buffer, HEADER_LENGTH + bytes.length);
+        target.putInt(bytes.length);
+        target.put(opcode);
+        target.put(bytes);
+        return target;
+    }
+
+    /* returns the total length of the frame at the start of a buffer which is ready for reading, or -1 if not
+    * even the header has arrived yet*/
+    public static int frameLength(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_LENGTH) {
+            return -1;
+        }
+        int payloadLength = buffer.getInt(buffer.position());
+        if (payloadLength < 0 || payloadLength > MAX_PAYLOAD_LENGTH) {
+            throw new IOException("Invalid frame length " + payloadLength);
+        }
+        return HEADER_LENGTH + payloadLength;
+    }
+
+    /* reads the opcode of the frame at the start of the buffer without consuming it*/
+    public static byte opcode(ByteBuffer buffer) {
+        return buffer.get(buffer.position() + 4);
+    }
+
+    /* consumes the complete frame at the start of the buffer and returns its payload*/
+    public static String takePayload(ByteBuffer buffer) {
+        int payloadLength = buffer.getInt();
+        buffer.get();
+        String payload = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), payloadLength, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + payloadLength);
+        return payload;
+    }
+
+    /* makes sure a buffer which is ready for reading starts with a complete frame, reading more from the stream
+    * when it does not. Returns the buffer which holds the frame, since it is grown for frames larger than it,
+    * or null if the stream ends first*/
+    public static ByteBuffer readFrame(InputStream inputStream, ByteBuffer buffer) throws IOException {
+        int frameLength;
+        while ((frameLength = frameLength(buffer)) == -1 || buffer.remaining() < frameLength) {
+            int neededLength = frameLength == -1 ? HEADER_LENGTH : frameLength;
+            buffer.compact();
+            buffer = ensureRemaining(buffer, neededLength - buffer.position());
+            int bytesRead = inputStream.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            if (bytesRead == -1) {
+                return null;
+            }
+            buffer.position(buffer.position() + bytesRead);
+            buffer.flip();
+        }
+        return buffer;
+    }
+
+    /* makes sure a buffer which is ready for writing has room for the given number of bytes, copying what it
+    * holds into a larger buffer when it does not*/
+    public static ByteBuffer ensureRemaining(ByteBuffer buffer, int length) {
+        if (buffer.remaining() >= length) {
+            return buffer;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+}
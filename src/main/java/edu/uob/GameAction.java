@@ -8,6 +8,16 @@ public class GameAction {
     final private List<String> consumedEntities;
     final private List<String> producedEntities;
     final private String narration;
+    /* the entity ids of the subjects, consumed and produced entities, filled in by resolveSymbols once the
+    * entities have been loaded. A name which is not an entity (such as "health") has EntitySymbols.NO_ID*/
+    private int[] subjectIds = new int[0];
+    private int[] consumedIds = new int[0];
+    private int[] producedIds = new int[0];
+    /* the subject ids as a set, and whether every subject is an entity at all*/
+    private EntityBits subjectBits = new EntityBits();
+    private boolean allSubjectsKnown = true;
+    /* given by the ActionIndex when the game is loaded*/
+    private int id = -1;
 
     public GameAction(List<String> triggers, List<String> subjects,
                       List<String> consumedEntities, List<String> producedEntities,
@@ -19,6 +29,10 @@ public class GameAction {
         this.narration = narration;
     }
 
+    public List<String> getTriggers() {
+        return this.triggers;
+    }
+
     public List<String> getSubjects() {
         return this.subjects;
     }
@@ -34,4 +48,60 @@ public class GameAction {
     public List<String> getProducedEntities() {
         return this.producedEntities;
     }
+
+    public int getId() {
+        return this.id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    /* looks up the ids of every entity this action names*/
+    public void resolveSymbols(EntitySymbols symbols) {
+        this.subjectIds = symbols.idsOf(subjects);
+        this.consumedIds = symbols.idsOf(consumedEntities);
+        this.producedIds = symbols.idsOf(producedEntities);
+        this.subjectBits = EntityBits.of(subjectIds);
+        this.allSubjectsKnown = true;
+        for (int subjectId : subjectIds) {
+            if (subjectId == EntitySymbols.NO_ID) {
+                this.allSubjectsKnown = false;
+            }
+        }
+    }
+
+    public EntityBits getSubjectBits() {
+        return this.subjectBits;
+    }
+
+    /* false if a subject is not an entity, in which case it can never be found*/
+    public boolean allSubjectsKnown() {
+        return this.allSubjectsKnown;
+    }
+
+    public int[] getSubjectIds() {
+        return this.subjectIds;
+    }
+
+    public int[] getConsumedIds() {
+        return this.consumedIds;
+    }
+
+    public int[] getProducedIds() {
+        return this.producedIds;
+    }
+
+    /* checks whether the entity with this id is one of the subjects*/
+    public boolean hasSubject(int id) {
+        if (id < 0) {
+            return false;
+        }
+        for (int subjectId : subjectIds) {
+            if (subjectId == id) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
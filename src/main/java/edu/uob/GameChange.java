@@ -0,0 +1,60 @@
+package edu.uob;
+
+/* One change to the game state, handed to every GameChangeListener watching the location or player it happened
+ to. The change has already been made by the time listeners hear about it, and the version is the source's version
+ straight after the change */
+
+public final class GameChange {
+
+    public enum Kind {
+        /* an artefact, character or piece of furniture was put into or taken out of a location*/
+        ENTITY_ADDED,
+        ENTITY_REMOVED,
+        EXIT_ADDED,
+        EXIT_REMOVED,
+        PLAYER_ENTERED,
+        PLAYER_LEFT,
+        /* an artefact was put into or taken out of a player's inventory*/
+        INVENTORY_ADDED,
+        INVENTORY_REMOVED,
+        HEALTH_CHANGED,
+        /* a player's current location was changed*/
+        PLAYER_MOVED
+    }
+
+    private final Kind kind;
+    private final GameEntity source;
+    private final String entityName;
+    private final long version;
+
+    GameChange(Kind kind, GameEntity source, String entityName, long version) {
+        this.kind = kind;
+        this.source = source;
+        this.entityName = entityName;
+        this.version = version;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /* the location or player which changed*/
+    public GameEntity getSource() {
+        return source;
+    }
+
+    /* the name of the entity, exit or player which was added or removed. For HEALTH_CHANGED and PLAYER_MOVED it
+    * is the player's name*/
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + entityName + " in " + source.getName() + " at version " + version;
+    }
+}
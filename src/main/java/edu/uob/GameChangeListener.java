@@ -0,0 +1,10 @@
+package edu.uob;
+
+/* Told about every change to the locations or players it has been added to. It is called on the thread which
+ made the change, while that thread still holds the location or player's lock, so it should only record the change
+ or hand it on and must not call back into the game */
+
+public interface GameChangeListener {
+
+    void onChange(GameChange change);
+}
@@ -6,38 +6,178 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
 * This is the sample client for you to connect to your game server.
 *
 * <p>Input are taken from stdin and output goes to stdout.
+*
+* <p>The client keeps one connection open for the whole session and sends every command over it. A server
+* which only answers one command per connection (such as {@link GameServer#blockingListenOn(int)}) closes
+* the connection after each response, in which case the client reconnects for every command.
+*
+* <p>Against a server which keeps sessions open, {@link #sendCommands(List)} pipelines a whole batch of
+* commands and reads the responses back in order, so a script pays one round trip instead of one per command.
+* Passing "framed" after the username uses {@link FramedGameClient} and the length-prefixed protocol instead.
 */
-public final class GameClient {
+public final class GameClient implements CommandClient {
 
     private static final char END_OF_TRANSMISSION = 4;
 
+    private final String host;
+    private final int portNumber;
+    private final String username;
+    private Socket socket;
+    private BufferedReader socketReader;
+    private BufferedWriter socketWriter;
+    /* null until the client has seen whether the server answers more than one command per connection*/
+    private Boolean keepsSessions = null;
+
     public static void main(String[] args) throws IOException {
         String username = args[0];
-        while (!Thread.interrupted()) handleNextCommand(username);
+        BufferedReader commandLine = new BufferedReader(new InputStreamReader(System.in));
+        try (CommandClient client = openClient(args, username)) {
+            while (!Thread.interrupted()) handleNextCommand(client, username, commandLine);
+        }
     }
 
-    private static void handleNextCommand(String username) throws IOException {
+    /* the framed protocol is used when "framed" is given after the username*/
+    private static CommandClient openClient(String[] args, String username) throws IOException {
+        if (args.length > 1 && args[1].equals("framed")) {
+            return new FramedGameClient("localhost", 8888, username);
+        }
+        return new GameClient("localhost", 8888, username);
+    }
+
+    private static void handleNextCommand(CommandClient client, String username, BufferedReader commandLine) throws IOException {
         System.out.print(username + ":> ");
-        BufferedReader commandLine = new BufferedReader(new InputStreamReader(System.in));
         String command = commandLine.readLine();
-        try (var socket = new Socket("localhost", 8888);
-        var socketReader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-        var socketWriter = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()))) {
-            socketWriter.write(username + ": " + command + "\n");
-            socketWriter.flush();
-            String incomingMessage = socketReader.readLine();
-            if (incomingMessage == null) {
+        if (command == null) {
+            throw new IOException("Input closed (end-of-stream)");
+        }
+        System.out.println(client.sendCommand(command));
+    }
+
+    public GameClient(String host, int portNumber, String username) {
+        this.host = host;
+        this.portNumber = portNumber;
+        this.username = username;
+    }
+
+    /* sends a command for this client's player and returns the response without the END_OF_TRANSMISSION line*/
+    @Override
+    public String sendCommand(String command) throws IOException {
+        return sendCommands(List.of(command)).get(0);
+    }
+
+    /* sends all the commands without waiting for each reply and returns the responses in the same order.
+    * Commands are only pipelined once the server has shown that it keeps sessions open; until then, and
+    * against a server which closes the connection after every response, they are sent one at a time.
+    * A command is only resent over a new connection when it cannot have reached a server which runs it: the
+    * server is not known to keep sessions and nothing came back for it. Otherwise the lost part may be the reply
+    * rather than the command, so resending could run it twice, and an IOException saying how many commands
+    * were answered is thrown instead*/
+    @Override
+    public List<String> sendCommands(List<String> commands) throws IOException {
+        List<String> responses = new ArrayList<>();
+        boolean reconnected = false;
+        while (responses.size() < commands.size()) {
+            List<String> remaining = commands.subList(responses.size(), commands.size());
+            int batchSize = Boolean.TRUE.equals(keepsSessions) ? remaining.size() : 1;
+            boolean reusingConnection = socket != null;
+            int received = exchange(remaining.subList(0, batchSize), responses);
+            if (received == batchSize) {
+                if (reusingConnection && keepsSessions == null) {
+                    keepsSessions = true;
+                }
+                if (Boolean.FALSE.equals(keepsSessions)) {
+                    disconnect();
+                }
+                reconnected = false;
+                continue;
+            }
+            disconnect();
+            if (received > 0 || Boolean.TRUE.equals(keepsSessions)) {
+                throw new IOException("Connection closed after " + responses.size() + " of " + commands.size()
+                        + " commands were answered; the unanswered commands may already have run");
+            }
+            if (reconnected) {
                 throw new IOException("Server disconnected (end-of-stream)");
             }
-            while (incomingMessage != null && !incomingMessage.contains("" + END_OF_TRANSMISSION + "")) {
-                System.out.println(incomingMessage);
-                incomingMessage = socketReader.readLine();
+            if (reusingConnection && keepsSessions == null) {
+                keepsSessions = false;
             }
+            reconnected = true;
         }
+        return responses;
+    }
+
+    /* writes the batch of commands in one go and then reads their responses in order. Returns how many
+    * responses arrived before the connection closed*/
+    private int exchange(List<String> batch, List<String> responses) {
+        int received = 0;
+        try {
+            connect();
+            for (String command : batch) {
+                socketWriter.write(username + ": " + command + "\n");
+            }
+            socketWriter.flush();
+            while (received < batch.size()) {
+                String response = readResponse();
+                if (response == null) {
+                    break;
+                }
+                responses.add(response);
+                received++;
+            }
+        } catch (IOException e) {
+            return received;
+        }
+        return received;
+    }
+
+    /* reads the lines of one response up to the END_OF_TRANSMISSION line. Returns null if the connection was
+    * closed before any of the response arrived*/
+    private String readResponse() throws IOException {
+        String incomingMessage = socketReader.readLine();
+        if (incomingMessage == null) {
+            return null;
+        }
+        StringBuilder response = new StringBuilder();
+        while (incomingMessage != null && !incomingMessage.contains("" + END_OF_TRANSMISSION + "")) {
+            if (response.length() > 0) {
+                response.append("\n");
+            }
+            response.append(incomingMessage);
+            incomingMessage = socketReader.readLine();
+        }
+        return response.toString();
+    }
+
+    private void connect() throws IOException {
+        if (socket != null) {
+            return;
+        }
+        socket = new Socket(host, portNumber);
+        socket.setTcpNoDelay(true);
+        socketReader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        socketWriter = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    private void disconnect() throws IOException {
+        if (socket != null) {
+            socket.close();
+        }
+        socket = null;
+        socketReader = null;
+        socketWriter = null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        disconnect();
     }
 }
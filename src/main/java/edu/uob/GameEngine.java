@@ -2,22 +2,78 @@ package edu.uob;
 
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 
 /* this class represents the gameEngine of the game, which takes in the gamemap, games actions
 * and the current players of the game. The game engine takes in a method which receives the user command,
-* which then alters the game state and returns the appropriate response back to the user*/
+* which then alters the game state and returns the appropriate response back to the user.
+*
+* By default the engine expects to be driven from one thread at a time. In concurrent mode every command holds its
+* player's lock and the locks of only the locations it touches (see lockLocationsFor), so commands in different
+* rooms can run at the same time on different threads. In sharded mode each location belongs to one LocationShards
+* event loop, which moves players with its own PlayerMover, and only the shared storeroom is locked. In both modes
+* look, inv and health are answered from the published location and player snapshots, and only look ever takes a
+* lock- the location's own, when it is the first to look since the location changed*/
 
 public class GameEngine {
+    private static final Pattern VALID_PLAYER_NAME = Pattern.compile("^[A-Za-z\\s'-]+$");
+    private static final Set<String> READ_ONLY_COMMANDS = Set.of("look", "inv", "inventory", "health");
+    private static final Set<String> DISALLOWED_PLAYER_NAMES = Set.of("inventory", "inv", "get", "drop", "goto", "look", "health");
     private final GameMap gameMap;
     private final HashMap<String, HashSet<GameAction>> actionsMap;
-    private HashMap<String, StagPlayer> players;
+    private final TriggerMatcher triggerMatcher;
+    private final ActionIndex actionIndex;
+    private final PlayerRegistry players;
+    /* the command handlers hold no per-command state, so they are built once and shared by every command*/
+    private final ActionExecutor actionExecutor;
+    private volatile BasicCommandHandler basicCommands;
+    private volatile boolean concurrent = false;
+    private volatile boolean sharded = false;
 
     public GameEngine(GameMap gameMap, HashMap<String, HashSet<GameAction>> actionsMap) {
+        this(gameMap, actionsMap, new TriggerMatcher(actionsMap.keySet()));
+    }
+
+    public GameEngine(GameMap gameMap, HashMap<String, HashSet<GameAction>> actionsMap, TriggerMatcher triggerMatcher) {
         this.gameMap = gameMap;
         this.actionsMap = actionsMap;
-        this.players = new HashMap<>();
+        this.triggerMatcher = triggerMatcher;
+        this.players = new PlayerRegistry();
+        /* the actions refer to entities by name in the file, so their entity ids are looked up once here*/
+        for (HashSet<GameAction> actions : actionsMap.values()) {
+            for (GameAction action : actions) {
+                action.resolveSymbols(gameMap.getSymbols());
+            }
+        }
+        this.actionIndex = new ActionIndex(actionsMap);
+        this.actionExecutor = new ActionExecutor(actionsMap, gameMap, actionIndex);
+        this.basicCommands = new BasicCommandHandler(gameMap);
+    }
+
+    /* turns location locking on or off. It must be on before handleCommand is called from more than one thread*/
+    public void setConcurrent(boolean concurrent) {
+        this.concurrent = concurrent;
+    }
+
+    /* turns sharded mode on. Commands must then only run on the event loop owning the player's location, and
+    * the mover is used to hand players over between event loops*/
+    public void setSharded(PlayerMover mover) {
+        this.basicCommands = new BasicCommandHandler(gameMap, mover);
+        this.sharded = true;
+        this.concurrent = true;
+    }
+
+    /* returns the player who sent the command, or null if they have not joined the game yet. This lets
+    * LocationShards find the event loop a command belongs to without creating the player*/
+    public StagPlayer findPlayer(String command) {
+        return players.get(CommandTokens.usernameOf(command));
+    }
+
+    public PlayerRegistry getPlayers() {
+        return players;
     }
 
     /* this method will first get the player's game state information if they are already in the
@@ -29,9 +85,10 @@ public class GameEngine {
 
     public String handleCommand(String command, GameMap map) {
 
-        String result = "Invalid command- you either have not entered a command or the action cannot be done in this game";
-        /* the two functions below will get the username from the command and check if the username is valid */
-        String username = getUsername(command);
+        /* the command is split up once here and the tokens are passed along to whatever handles it*/
+        CommandTokens tokens = CommandTokens.parse(command);
+        /* the two lines below will get the username from the command and check if the username is valid */
+        String username = tokens.getUsername();
         if(!isValidPlayerName(username)){
             return "Invalid command- That is an invalid username";
         }
@@ -40,49 +97,130 @@ public class GameEngine {
         }
         /* now will get the player and its information depending on the username given */
         StagPlayer player = getPlayer(map, username);
+        /* look, inv and health only read the published snapshots, so they never hold the player's lock*/
+        /* the action trigger is looked for once, in a single pass over the command. It is null if there is none*/
+        String trigger = triggerMatcher.findTrigger(command);
+        if (!concurrent || isReadOnlyCommand(tokens, trigger)) {
+            return dispatchCommand(tokens, trigger, player);
+        }
+        player.getLock().lock();
+        try {
+            List<StagLocation> locked = lockLocationsFor(tokens, trigger, player);
+            try {
+                return dispatchCommand(tokens, trigger, player);
+            }
+            finally {
+                LocationLocks.unlockAll(locked);
+            }
+        }
+        finally {
+            player.getLock().unlock();
+        }
+    }
+
+    /* this method works out whether the command is a basic command or an action command and hands it on*/
+    private String dispatchCommand(CommandTokens tokens, String trigger, StagPlayer player) {
+        boolean hasActionTrigger = trigger != null;
+        String result = "Invalid command- you either have not entered a command or the action cannot be done in this game";
         /* Two conditions check if the command is a basic or action command. Will proceed to interpret them*/
-        if(isValidBasicCommand(command) && !hasActionTrigger(command)){
-            BasicCommandHandler inBuilt = new BasicCommandHandler(player, gameMap);
-            result = inBuilt.handleCommand(command);
+        if(isValidBasicCommand(tokens) && !hasActionTrigger){
+            result = basicCommands.handleCommand(player, tokens);
             return result;
         }
-        else if(hasActionTrigger(command) && !isValidBasicCommand(command)){
-            ActionExecutor action = new ActionExecutor(actionsMap, gameMap);
-            result = action.executeAction(getTrigger(command), player, command);
+        else if(hasActionTrigger && !isValidBasicCommand(tokens)){
+            result = actionExecutor.executeAction(trigger, player, tokens);
         }
-        else if(hasActionTrigger(command) && isValidBasicCommand(command)){
+        else if(hasActionTrigger && isValidBasicCommand(tokens)){
             return "Invalid command- you can only do one command at a time";
         }
         return result;
     }
 
+    /* this method checks if the command is a basic command which does not change the game state*/
+    private boolean isReadOnlyCommand(CommandTokens tokens, String trigger) {
+        if (!isValidBasicCommand(tokens) || trigger != null) {
+            return false;
+        }
+        for (String token : tokens.getTokens()) {
+            if (READ_ONLY_COMMANDS.contains(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* this method locks the locations a command can touch and returns them so they can be unlocked afterwards.
+    * Every command touches the player's location. Actions may also move entities to and from the storeroom, and
+    * a player who dies is sent to the first location. A goto touches its target, which can only be found from
+    * the exits of the player's location once that is locked- if the target then needs locking as well,
+    * everything is released and locked again in order, and the exit is checked again*/
+    private List<StagLocation> lockLocationsFor(CommandTokens tokens, String trigger, StagPlayer player) {
+        Set<StagLocation> locations = new HashSet<>();
+        if (sharded) {
+            /* the event loop already owns the player's location, and the storeroom is shared by every loop*/
+            if (trigger != null && !isValidBasicCommand(tokens) && gameMap.getStoreroom() != null) {
+                locations.add(gameMap.getStoreroom());
+            }
+            return LocationLocks.lockAll(locations);
+        }
+        StagLocation current = player.getLocation();
+        locations.add(current);
+        boolean isBasicCommand = isValidBasicCommand(tokens);
+        if (trigger != null && !isBasicCommand) {
+            if (gameMap.getStoreroom() != null) {
+                locations.add(gameMap.getStoreroom());
+            }
+            locations.add(gameMap.getFirstLocation());
+        }
+        if (!isBasicCommand || !tokens.containsToken("goto")) {
+            return LocationLocks.lockAll(locations);
+        }
+        String entity = basicCommands.getEntityFromCommand(player, tokens);
+        while (true) {
+            List<StagLocation> locked = LocationLocks.lockAll(locations);
+            StagLocation target = current.getExit(entity);
+            if (target == null || locations.contains(target)) {
+                return locked;
+            }
+            LocationLocks.unlockAll(locked);
+            locations.add(target);
+        }
+    }
+
 
-    /*gets the players information from a hashmap which stores players and their information,
-    * if player does not exist, player gets added to hashmap*/
+    /*gets the players information from the player registry, if player does not exist, player gets added
+    * to the registry*/
     private StagPlayer getPlayer(GameMap map, String playerName){
 
-        StagPlayer player = players.get(playerName);
-        if(player == null){
-            player = addPlayerToMap(map, playerName);
-        }
-        return player;
+        return players.getOrCreate(playerName, name -> addPlayerToMap(map, name));
     }
 
-    /* method adds the player to a hashmap if they did not already exist in the game*/
+    /* method creates a player who did not already exist in the game. The registry makes sure it happens
+    * exactly once per name even when two of that player's first commands arrive together*/
 
     private StagPlayer addPlayerToMap(GameMap map, String playerName){
 
         /*initialises the new player and gives them health */
         StagPlayer player = new StagPlayer(playerName, "player", 3);
+        map.watchPlayer(player);
         /*gets the starting location of the map */
         StagLocation start = startingLocation(map);
         /*sets the location of the player to the starting location */
         player.setLocation(start);
             /*we need to add the player to the location they are in as well so that other characters can
             see them*/
-        start.addPlayer(player.getName(), player);
-        /*places the new player into a hashmap of players */
-        players.put(player.getName(), player);
+        if (concurrent && !sharded) {
+            start.getLock().lock();
+            try {
+                start.addPlayer(player.getName(), player);
+            }
+            finally {
+                start.getLock().unlock();
+            }
+        }
+        else {
+            start.addPlayer(player.getName(), player);
+        }
         return player;
     }
 
@@ -98,13 +236,11 @@ public class GameEngine {
     /* this method tests whether the command is a valid basic command that has only one basic command
     * in the command string*/
 
-    private boolean isValidBasicCommand(String command) {
-        String[] tokens = command.split(" ");
+    private boolean isValidBasicCommand(CommandTokens tokens) {
         int numMatches = 0;
 
-        for (String token : tokens) {
-            if (token.equals("inventory") || token.equals("inv") || token.equals("get")
-                    || token.equals("drop") || token.equals("goto") || token.equals("look") || token.equals("health")) {
+        for (String token : tokens.getTokens()) {
+            if (basicCommands.isBasicCommand(token)) {
                 numMatches++;
                 if (numMatches > 1) {
                     return false;
@@ -114,49 +250,13 @@ public class GameEngine {
         return numMatches == 1;
     }
 
-    /* this method checks that a command has a trigger inside it. If there are multiple triggers
-     related to other actions inside the command then, there will be errors within the ActionExcecutor class*/
-
-    private boolean hasActionTrigger(String command) {
-        for (String action : actionsMap.keySet()) {
-            if (command.contains(action)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /* this method will get the trigger from the command If there are multiple triggers related to other actions
-      inside the command then, there will be errors within the ActionExcecutor class. If there are multiple triggers
-      related to the same action, there will be no errors*/
-
-    private String getTrigger(String command){
-        for (String action : actionsMap.keySet()) {
-            if (command.contains(action)) {
-                return action;
-            }
-        }
-        return "";
-    }
-
    /* method checks that the string pattern contains the correct sort of characters adn it also tests that
     the player names are not a reserved keyword*/
 
     private static boolean isValidPlayerName(String name) {
 
-        String[] substrings = name.split(":");
-        if(substrings.length > 1){
-            return false;
-        }
-        String pattern = "^[A-Za-z\\s'-]+$";
-        HashSet<String> disallowedWords = new HashSet<>(Arrays.asList("inventory", "inv", "get", "drop", "goto", "look", "health"));
-        return name.matches(pattern) && !disallowedWords.contains(name);
-    }
-
-    private String getUsername(String command){
-        String[] parts = command.split(": | ");
-        String playerName = parts[0];
-        return playerName;
+        /* the pattern does not allow ':' so a name with a colon in it is rejected as well*/
+        return VALID_PLAYER_NAME.matcher(name).matches() && !DISALLOWED_PLAYER_NAMES.contains(name);
     }
 
 }
@@ -5,6 +5,11 @@ public abstract class GameEntity
     protected String name;
     protected String description;
     protected EntityType type;
+    /* the entity's id in the GameMap's EntitySymbols, or NO_ID for players*/
+    protected int id = EntitySymbols.NO_ID;
+    /* the location or player holding this entity right now, kept up to date by StagLocation and StagPlayer.
+    * volatile so it can be read without the holder's lock*/
+    private volatile GameEntity container;
 
     public GameEntity(String name, String description)
     {
@@ -26,5 +31,35 @@ public abstract class GameEntity
         return type;
     }
 
+    public int getId()
+    {
+        return id;
+    }
+
+    public void setId(int id)
+    {
+        this.id = id;
+    }
+
+    public GameEntity getContainer()
+    {
+        return container;
+    }
+
+    /* called by the holder when the entity is put into it*/
+    void placeIn(GameEntity holder)
+    {
+        this.container = holder;
+    }
+
+    /* called by the holder when the entity is taken out of it. If the entity has already been put somewhere
+    * else (a produced artefact is added to the location before it leaves the storeroom) that is left alone*/
+    void takeFrom(GameEntity holder)
+    {
+        if (this.container == holder) {
+            this.container = null;
+        }
+    }
+
 
 }
@@ -0,0 +1,222 @@
+package edu.uob;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/* This class is the server's structured log. Connection and command threads never write to stdout themselves:
+ they put an event into a bounded, lock-free ring buffer and carry on, and a background thread drains the ring
+ in batches and writes them out as key=value lines with one flush per batch.
+
+ Logging must never hold up game commands, so when the ring is full an event is dropped, and once it is more
+ than three quarters full only one in every SAMPLE_RATE command events is kept. Connection events are only
+ dropped when the ring is completely full. The number of dropped events is reported with the next batch.
+
+ The ring is a bounded multi-producer queue: producers claim a slot by advancing the tail with a CAS and then
+ publish it by bumping that slot's sequence number, which is what the single consumer waits for */
+
+public class GameLog {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    private static final int BATCH_SIZE = 256;
+    private static final int SAMPLE_RATE = 8;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicReferenceArray<LogEvent> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head = 0;
+    private final AtomicLong nextConnectionId = new AtomicLong();
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final Writer output;
+    private Thread flushThread;
+    private volatile boolean running = false;
+
+    public GameLog() {
+        this(System.out, DEFAULT_CAPACITY);
+    }
+
+    /* the capacity is rounded up to a power of two*/
+    public GameLog(OutputStream outputStream, int capacity) {
+        int size = 2;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.output = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    }
+
+    /* starts the background flush thread if it is not already running*/
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        flushThread = new Thread(this::flushLoop, "game-log");
+        flushThread.setDaemon(true);
+        flushThread.start();
+    }
+
+    /* stops the flush thread once everything logged so far has been written*/
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(flushThread);
+        try {
+            flushThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long nextConnectionId() {
+        return nextConnectionId.incrementAndGet();
+    }
+
+    public void info(String message) {
+        offer(new LogEvent("info", 0, message, -1), false);
+    }
+
+    public void connectionOpened(long connectionId) {
+        offer(new LogEvent("connection_opened", connectionId, null, -1), false);
+    }
+
+    public void connectionClosed(long connectionId) {
+        offer(new LogEvent("connection_closed", connectionId, null, -1), false);
+    }
+
+    /* records a command together with how long it took from arriving to having its response*/
+    public void command(long connectionId, String command, long latencyNanos) {
+        offer(new LogEvent("command", connectionId, command, latencyNanos), true);
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /* puts the event into the ring without ever blocking. Returns false if it was dropped or sampled out*/
+    private boolean offer(LogEvent event, boolean sampled) {
+        if (sampled && occupancy() > (mask + 1) * 3 / 4 && sampleCounter.incrementAndGet() % SAMPLE_RATE != 0) {
+            dropped.increment();
+            return false;
+        }
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, event);
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            }
+            else if (difference < 0) {
+                dropped.increment();
+                return false;
+            }
+        }
+    }
+
+    private long occupancy() {
+        return tail.get() - head;
+    }
+
+    /* takes the next published event, or null if the ring is empty. Only the flush thread calls this*/
+    private LogEvent poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        LogEvent event = slots.get(index);
+        slots.set(index, null);
+        sequences.lazySet(index, head + mask + 1);
+        head++;
+        return event;
+    }
+
+    private void flushLoop() {
+        StringBuilder batch = new StringBuilder();
+        long reportedDrops = 0;
+        while (running || occupancy() > 0) {
+            int events = 0;
+            LogEvent event;
+            while (events < BATCH_SIZE && (event = poll()) != null) {
+                event.appendTo(batch);
+                events++;
+            }
+            long drops = dropped.sum();
+            if (drops != reportedDrops) {
+                new LogEvent("log_dropped", 0, Long.toString(drops - reportedDrops), -1).appendTo(batch);
+                reportedDrops = drops;
+            }
+            if (batch.length() > 0) {
+                write(batch);
+                batch.setLength(0);
+            }
+            if (events == 0 && running) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void write(CharSequence batch) {
+        try {
+            output.append(batch);
+            output.flush();
+        } catch (IOException e) {
+            dropped.increment();
+        }
+    }
+
+    /* One log record. Fields which do not apply to an event are left out of its line*/
+    private static class LogEvent {
+        private final long timestampMillis = System.currentTimeMillis();
+        private final String event;
+        private final long connectionId;
+        private final String detail;
+        private final long latencyNanos;
+
+        private LogEvent(String event, long connectionId, String detail, long latencyNanos) {
+            this.event = event;
+            this.connectionId = connectionId;
+            this.detail = detail;
+            this.latencyNanos = latencyNanos;
+        }
+
+        private void appendTo(StringBuilder line) {
+            line.append("ts=").append(Instant.ofEpochMilli(timestampMillis));
+            line.append(" event=").append(event);
+            if (connectionId > 0) {
+                line.append(" conn=").append(connectionId);
+            }
+            if (latencyNanos >= 0) {
+                line.append(" latency_us=").append(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            }
+            if (detail != null) {
+                line.append(event.equals("command") ? " command=\"" : " message=\"");
+                line.append(detail.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            }
+            line.append('\n');
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package edu.uob;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import com.alexmerz.graphviz.ParseException;
 import com.alexmerz.graphviz.objects.Edge;
 import com.alexmerz.graphviz.objects.Graph;
@@ -15,10 +17,67 @@ public class GameMap {
     private Map<String, StagLocation> map;
     /* this variable represents the different entities in the game and is created when the map gets initialized*/
     private Set<String> entitySet;
+    /* the entity names are only added to while the map is loaded, so once that is done they are frozen into an
+    * immutable list and set which every command shares, and a matcher which finds any of them inside a command*/
+    private final List<String> entityList;
+    private final Set<String> entityNames;
+    private final TriggerMatcher entityMatcher;
+    /* every entity name with its int id, filled in as the entities are loaded*/
+    private final EntitySymbols symbols = new EntitySymbols();
+    /* every entity by name, filled in as the entities are loaded. Entities are never created or renamed after
+    * that, only moved, and where each one is now is kept on the entity itself (see GameEntity.getContainer), so
+    * finding an entity never has to search the locations*/
+    private final Map<String, GameEntity> entitiesByName = new HashMap<>();
+    /* goes up by one with every change to any location or watched player. Commands in different locations can
+    * change the map at the same time, so it is atomic*/
+    private final AtomicLong version = new AtomicLong();
+    private final List<GameChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final GameChangeListener forwarder = this::forwardChange;
 
     public GameMap(List<Graph> locations, List<Edge> paths) throws ParseException {
+        this(buildLocations(locations, paths));
+    }
+
+    /* takes locations which have already been filled with their entities and exits, such as the ones
+    * DotEntitiesLoader reads straight from the file, and gives every entity its id*/
+    public GameMap(List<StagLocation> locations) {
         map = new LinkedHashMap<>();
         entitySet = new HashSet<>();
+        for (StagLocation location : locations) {
+            register(location.getName(), location);
+            for (StagCharacter character : location.getCharacters().values()) {
+                register(character.getName(), character);
+            }
+            for (StagArtefact artefact : location.getArtefacts().values()) {
+                register(artefact.getName(), artefact);
+            }
+            for (StagFurniture furniture : location.getFurniture().values()) {
+                register(furniture.getName(), furniture);
+            }
+            map.put(location.getName(), location);
+        }
+        for (StagLocation location : map.values()) {
+            /* the entities only have their ids now, so the location's id bits are filled in again*/
+            location.refreshEntityIds();
+            entitySet.addAll(location.getExits().keySet());
+        }
+        this.entityList = List.copyOf(entitySet);
+        this.entityNames = Set.copyOf(entitySet);
+        this.entityMatcher = new TriggerMatcher(entityList);
+        for (StagLocation location : map.values()) {
+            location.addListener(forwarder);
+        }
+    }
+
+    private void register(String name, GameEntity entity) {
+        entity.setId(symbols.intern(name));
+        entitiesByName.putIfAbsent(name, entity);
+        entitySet.add(name);
+    }
+
+    /* turns the Graph objects from the graphviz Parser into locations holding their entities and exits*/
+    private static List<StagLocation> buildLocations(List<Graph> locations, List<Edge> paths) throws ParseException {
+        Map<String, StagLocation> built = new LinkedHashMap<>();
         for (Graph locationGraph : locations) {
 
             Node locationDetails = locationGraph.getNodes(false).get(0);
@@ -26,12 +85,6 @@ public class GameMap {
             String locationDescription = locationDetails.getAttribute("description");
             StagLocation location = new StagLocation(locationName, locationDescription);
             location.setEntityType();
-            entitySet.add(locationName);
-
-            List<Graph> subgraphs = new ArrayList<>();
-            for (Graph subgraph : locationGraph.getSubgraphs()) {
-                subgraphs.add(subgraph);
-            }
 
             for (Graph subgraph : locationGraph.getSubgraphs()) {
                 if (subgraph.getId().getId().equals("characters")) {
@@ -41,7 +94,6 @@ public class GameMap {
                         StagCharacter character = new StagCharacter(id, description);
                         character.setType();
                         location.addCharacter(id, character);
-                        entitySet.add(id);
                     }
                 }
                 else if (subgraph.getId().getId().equals("artefacts")) {
@@ -51,7 +103,6 @@ public class GameMap {
                         StagArtefact artefact = new StagArtefact(id, description);
                         artefact.setType();
                         location.addArtefact(id, artefact);
-                        entitySet.add(id);
                     }
                 } else if (subgraph.getId().getId().equals("furniture")) {
                     for (Node node : subgraph.getNodes(false)) {
@@ -60,22 +111,20 @@ public class GameMap {
                         StagFurniture furniture = new StagFurniture(id, description);
                         furniture.setType();
                         location.addFurniture(id, furniture);
-                        entitySet.add(id);
                     }
                 }
             }
-            map.put(locationName, location);
+            built.put(locationName, location);
         }
 
         for (Edge path : paths) {
             String sourceLocationName = path.getSource().getNode().getId().getId().toLowerCase();
             String destinationLocationName = path.getTarget().getNode().getId().getId().toLowerCase();
-            StagLocation sourceLocation = map.get(sourceLocationName);
-            StagLocation destinationLocation = map.get(destinationLocationName);
+            StagLocation sourceLocation = built.get(sourceLocationName);
+            StagLocation destinationLocation = built.get(destinationLocationName);
             sourceLocation.addExit(destinationLocationName, destinationLocation);
-            entitySet.add(sourceLocationName);
-            entitySet.add(destinationLocationName);
         }
+        return new ArrayList<>(built.values());
     }
 
     public StagLocation getStoreroom() {
@@ -86,38 +135,39 @@ public class GameMap {
         return map.values();
     }
 
+    /* these three return the entity with that name if it is of that type and is in a location at the moment*/
     public StagArtefact getStagArtefact(String name) {
-
-        for (StagLocation location : map.values()) {
-            for (StagArtefact artefact : location.getArtefacts().values()) {
-                if (artefact.getName().equals(name)) {
-                    return artefact;
-                }
-            }
-        }
-        return null;
+        GameEntity entity = getEntityInLocation(name);
+        return entity instanceof StagArtefact ? (StagArtefact) entity : null;
     }
 
     public StagCharacter getStagCharacter(String name) {
-        for (StagLocation location : map.values()) {
-            for (StagCharacter character : location.getCharacters().values()) {
-                if (character.getName().equals(name)) {
-                    return character;
-                }
-            }
-        }
-        return null;
+        GameEntity entity = getEntityInLocation(name);
+        return entity instanceof StagCharacter ? (StagCharacter) entity : null;
     }
 
     public StagFurniture getStagFurniture(String name) {
-        for (StagLocation location : map.values()) {
-            for (StagFurniture furniture : location.getFurniture().values()) {
-                if (furniture.getName().equals(name)) {
-                    return furniture;
-                }
-            }
+        GameEntity entity = getEntityInLocation(name);
+        return entity instanceof StagFurniture ? (StagFurniture) entity : null;
+    }
+
+    private GameEntity getEntityInLocation(String name) {
+        GameEntity entity = entitiesByName.get(name);
+        if (entity == null || !(entity.getContainer() instanceof StagLocation)) {
+            return null;
         }
-        return null;
+        return entity;
+    }
+
+    /* returns the entity with that name wherever it is, or null if there is no such entity*/
+    public GameEntity getEntity(String name) {
+        return entitiesByName.get(name);
+    }
+
+    /* returns the location or player holding the entity, or null if it is not held by anything*/
+    public GameEntity getContainer(String name) {
+        GameEntity entity = entitiesByName.get(name);
+        return entity == null ? null : entity.getContainer();
     }
 
     public boolean containsKey(String key) {
@@ -136,12 +186,48 @@ public class GameMap {
         return map.values().iterator().next();
     }
 
+    /* the returned list is shared and cannot be changed*/
     public List<String> getEntities() {
-        List<String> entities = new ArrayList<>();
-        for (String entity : entitySet) {
-            entities.add(entity);
+        return entityList;
+    }
+
+    public boolean isEntity(String name) {
+        return entityNames.contains(name);
+    }
+
+    /* checks whether any entity name appears anywhere in the text, as command.contains(entity) would*/
+    public boolean mentionsEntity(String text) {
+        return entityMatcher.findTrigger(text) != null;
+    }
+
+    /* counts the changes to every location and watched player since the map was loaded*/
+    public long getVersion() {
+        return version.get();
+    }
+
+    /* the listener hears about changes to every location, and to every player the map has been told to watch*/
+    public void addListener(GameChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GameChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /* players are not part of the loaded map, so GameEngine hands each one over as it joins*/
+    public void watchPlayer(StagPlayer player) {
+        player.addListener(forwarder);
+    }
+
+    private void forwardChange(GameChange change) {
+        version.incrementAndGet();
+        for (GameChangeListener listener : listeners) {
+            listener.onChange(change);
         }
-        return entities;
+    }
+
+    public EntitySymbols getSymbols() {
+        return symbols;
     }
 
     public boolean isEmpty() {
@@ -2,8 +2,6 @@ package edu.uob;
 
 
 import com.alexmerz.graphviz.ParseException;
-import com.alexmerz.graphviz.objects.Edge;
-import com.alexmerz.graphviz.objects.Graph;
 import org.xml.sax.SAXException;
 
 import java.io.*;
@@ -14,6 +12,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 
 /** This class implements the STAG server. */
@@ -23,6 +23,8 @@ public final class GameServer {
     private GameMap map;
     private HashMap<String, HashSet<GameAction>> actionsMap;
     List<String> gameEntities;
+    /* connection and command events go through this log rather than straight to stdout*/
+    private final GameLog log = new GameLog();
 
     private static final char END_OF_TRANSMISSION = 4;
 
@@ -30,7 +32,25 @@ public final class GameServer {
         File entitiesFile = Paths.get("config" + File.separator + "extended-entities.dot").toAbsolutePath().toFile();
         File actionsFile = Paths.get("config" + File.separator + "extended-actions.xml").toAbsolutePath().toFile();
         GameServer server = new GameServer(entitiesFile, actionsFile);
-        server.blockingListenOn(8888);
+        /* the concurrent listeners take an optional admission queue depth and number of game-state threads
+        after the mode, and "shards" to split the locations across that many event loops instead of locking*/
+        int queueDepth = args.length > 1 ? Integer.parseInt(args[1]) : GameStateExecutor.DEFAULT_QUEUE_DEPTH;
+        int workerThreads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        boolean sharded = args.length > 3 && args[3].equals("shards");
+        if (args.length > 0 && (args[0].equals("nio") || args[0].equals("threads"))) {
+            CommandExecutor executor = sharded
+                    ? new LocationShards(server, queueDepth, workerThreads)
+                    : new GameStateExecutor(server, queueDepth, workerThreads);
+            if (args[0].equals("nio")) {
+                server.nonBlockingListenOn(8888, executor);
+            }
+            else {
+                server.threadPerConnectionListenOn(8888, executor);
+            }
+        }
+        else {
+            server.blockingListenOn(8888);
+        }
     }
 
     /**
@@ -47,17 +67,27 @@ public final class GameServer {
     public GameServer(File entitiesFile, File actionsFile) throws Exception {
 
         try {
-            ActionsParserAndLoader ParsedActionFile = new ActionsParserAndLoader(actionsFile);
-            EntitiesParserAndLoader parsedEntities = new EntitiesParserAndLoader(entitiesFile);
-            List<Graph> locations = parsedEntities.getLocations();
-            List<Edge> paths = parsedEntities.getPaths();
+            /* the two files have nothing to do with each other, so the actions are read on another thread while
+            * this one reads the entities. The map and engine are only built once both are in*/
+            CompletableFuture<ActionsParserAndLoader> actionsLoading =
+                    CompletableFuture.supplyAsync(() -> loadActions(actionsFile));
+            DotEntitiesLoader loadedEntities;
+            try {
+                loadedEntities = new DotEntitiesLoader(entitiesFile);
+            }
+            catch (Exception e) {
+                /* a problem in the actions file is still reported first, as it was when it was read first*/
+                awaitLoaded(actionsLoading);
+                throw e;
+            }
+            ActionsParserAndLoader ParsedActionFile = awaitLoaded(actionsLoading);
             this.actionsMap = ParsedActionFile.getActionsMap();
-            this.map = new GameMap(locations, paths);
+            this.map = new GameMap(loadedEntities.getLocations());
             this.gameEntities = map.getEntities();
             if(!ValidEntities(gameEntities)){
                 throw new Exception("Invalid game entities in entities file");
             }
-            this.gameEngine = new GameEngine(map, actionsMap);
+            this.gameEngine = new GameEngine(map, actionsMap, ParsedActionFile.getTriggerMatcher());
         }
         catch(ParseException e){
             throw new ParseException("Problem parsing the files" + e.getMessage());
@@ -79,6 +109,32 @@ public final class GameServer {
         }
     }
 
+    /* reads the actions file for the constructor. A checked exception is carried out of the future as its cause*/
+    private static ActionsParserAndLoader loadActions(File actionsFile) {
+        try {
+            return new ActionsParserAndLoader(actionsFile);
+        }
+        catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /* waits for a file to be loaded and throws whatever went wrong loading it as it was thrown*/
+    private static <T> T awaitLoaded(CompletableFuture<T> loading) throws Exception {
+        try {
+            return loading.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     /**
     * KEEP this signature (i.e. {@code edu.uob.GameServer.handleCommand(String)}) otherwise we won't be
     * able to mark your submission correctly.
@@ -90,6 +146,35 @@ public final class GameServer {
         return this.gameEngine.handleCommand(lowerCaseInputCommand, map);
     }
 
+    public GameLog getLog() {
+        return log;
+    }
+
+    /* switches the engine into its concurrent mode, where handleCommand may be called from several threads at
+    * once and each command only locks the locations it touches*/
+    public void setConcurrentCommands(boolean concurrent) {
+        this.gameEngine.setConcurrent(concurrent);
+    }
+
+    /* switches the engine into its sharded mode, see LocationShards*/
+    public void setShardedCommands(PlayerMover mover) {
+        this.gameEngine.setSharded(mover);
+    }
+
+    /* returns the player who sent the command, or null if they are not in the game yet*/
+    public StagPlayer findPlayer(String command) {
+        return this.gameEngine.findPlayer(command.toLowerCase());
+    }
+
+    public GameMap getGameMap() {
+        return map;
+    }
+
+    /* every player who has joined the game, for admin tools*/
+    public PlayerRegistry getPlayers() {
+        return this.gameEngine.getPlayers();
+    }
+
     /* This method checks the names of the entities and returns false if any of them are the inbuilt keywords */
     private boolean ValidEntities(List<String> gameEntities) {
         List<String> disallowedKeywords = Arrays.asList("health", "goto", "look", "inv", "inventory", "drop", "get");
@@ -114,16 +199,123 @@ public final class GameServer {
     * @throws IOException If any IO related operation fails.
     */
     public void blockingListenOn(int portNumber) throws IOException {
+        log.start();
         try (ServerSocket s = new ServerSocket(portNumber)) {
-            System.out.println("Server listening on port " + portNumber);
+            log.info("Server listening on port " + portNumber);
             while (!Thread.interrupted()) {
                 try {
                     blockingHandleConnection(s);
                 } catch (IOException e) {
-                    System.out.println("Connection closed");
+                    log.info("Connection closed: " + e.getMessage());
                 }
             }
         }
+        finally {
+            log.stop();
+        }
+    }
+
+    /**
+    * Starts a *non-blocking* socket server which serves every connection from a single selector thread,
+    * while all commands are executed one at a time on a single game-state thread. This method blocks until the
+    * current thread is interrupted.
+    *
+    * <p>This method isn't used for marking. It is an alternative to {@link #blockingListenOn(int)} for
+    * when many players are connected at the same time.
+    *
+    * @param portNumber The port to listen on.
+    * @throws IOException If any IO related operation fails.
+    */
+    public void nonBlockingListenOn(int portNumber) throws IOException {
+        nonBlockingListenOn(portNumber, GameStateExecutor.DEFAULT_QUEUE_DEPTH);
+    }
+
+    /**
+    * Same as {@link #nonBlockingListenOn(int)}, but with a chosen admission queue depth. Commands arriving while
+    * {@code queueDepth} commands are already waiting get {@link GameStateExecutor#SERVER_BUSY} straight away.
+    *
+    * @param portNumber The port to listen on.
+    * @param queueDepth The most commands that may wait for the game-state thread.
+    * @throws IOException If any IO related operation fails.
+    */
+    public void nonBlockingListenOn(int portNumber, int queueDepth) throws IOException {
+        nonBlockingListenOn(portNumber, queueDepth, 1);
+    }
+
+    /**
+    * Same as {@link #nonBlockingListenOn(int, int)}, but commands are executed by {@code workerThreads}
+    * game-state threads. With more than one, commands in different locations run in parallel.
+    *
+    * @param portNumber The port to listen on.
+    * @param queueDepth The most commands that may wait for a game-state thread.
+    * @param workerThreads The number of game-state threads.
+    * @throws IOException If any IO related operation fails.
+    */
+    public void nonBlockingListenOn(int portNumber, int queueDepth, int workerThreads) throws IOException {
+        nonBlockingListenOn(portNumber, new GameStateExecutor(this, queueDepth, workerThreads));
+    }
+
+    /**
+    * Same as {@link #nonBlockingListenOn(int)}, but commands are run by the given executor, such as
+    * {@link LocationShards}.
+    *
+    * @param portNumber The port to listen on.
+    * @param executor What runs the commands.
+    * @throws IOException If any IO related operation fails.
+    */
+    public void nonBlockingListenOn(int portNumber, CommandExecutor executor) throws IOException {
+        new SelectorListener(this, executor).listenOn(portNumber);
+    }
+
+    /**
+    * Starts a socket server which gives every connection its own (virtual, where available) thread, while all
+    * commands are executed one at a time on a single game-state thread. At most
+    * {@link ThreadPerConnectionListener#DEFAULT_MAX_CONNECTIONS} sessions are open at once, and a connection
+    * beyond that gets the busy response and is closed. This method blocks until the current thread is interrupted.
+    *
+    * <p>This method isn't used for marking.
+    *
+    * @param portNumber The port to listen on.
+    * @throws IOException If any IO related operation fails.
+    */
+    public void threadPerConnectionListenOn(int portNumber) throws IOException {
+        threadPerConnectionListenOn(portNumber, GameStateExecutor.DEFAULT_QUEUE_DEPTH);
+    }
+
+    /**
+    * Same as {@link #threadPerConnectionListenOn(int)}, but with a chosen admission queue depth.
+    *
+    * @param portNumber The port to listen on.
+    * @param queueDepth The most commands that may wait for the game-state thread.
+    * @throws IOException If any IO related operation fails.
+    */
+    public void threadPerConnectionListenOn(int portNumber, int queueDepth) throws IOException {
+        threadPerConnectionListenOn(portNumber, queueDepth, 1);
+    }
+
+    /**
+    * Same as {@link #threadPerConnectionListenOn(int, int)}, but commands are executed by {@code workerThreads}
+    * game-state threads. With more than one, commands in different locations run in parallel.
+    *
+    * @param portNumber The port to listen on.
+    * @param queueDepth The most commands that may wait for a game-state thread.
+    * @param workerThreads The number of game-state threads.
+    * @throws IOException If any IO related operation fails.
+    */
+    public void threadPerConnectionListenOn(int portNumber, int queueDepth, int workerThreads) throws IOException {
+        threadPerConnectionListenOn(portNumber, new GameStateExecutor(this, queueDepth, workerThreads));
+    }
+
+    /**
+    * Same as {@link #threadPerConnectionListenOn(int)}, but commands are run by the given executor, such as
+    * {@link LocationShards}.
+    *
+    * @param portNumber The port to listen on.
+    * @param executor What runs the commands.
+    * @throws IOException If any IO related operation fails.
+    */
+    public void threadPerConnectionListenOn(int portNumber, CommandExecutor executor) throws IOException {
+        new ThreadPerConnectionListener(this, executor).listenOn(portNumber);
     }
 
     /**
@@ -132,6 +324,10 @@ public final class GameServer {
     * <p>This method isn't used for marking. You shouldn't have to modify this method, but you can if
     * * you want to.
     *
+    * <p>Connections are served one after another here, so each one carries a single command and is then
+    * closed. Persistent sessions are served by {@link #nonBlockingListenOn(int)} and
+    * {@link #threadPerConnectionListenOn(int)}; {@link GameClient} reconnects when the connection is closed.
+    *
     * @param serverSocket The client socket to read/write from.
     * @throws IOException If any IO related operation fails.
     */
@@ -139,15 +335,18 @@ public final class GameServer {
         try (Socket s = serverSocket.accept();
         BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream()));
         BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(s.getOutputStream()))) {
-            System.out.println("Connection established");
+            long connectionId = log.nextConnectionId();
+            log.connectionOpened(connectionId);
             String incomingCommand = reader.readLine();
             if(incomingCommand != null) {
-                System.out.println("Received message from " + incomingCommand);
+                long receivedAt = System.nanoTime();
                 String result = handleCommand(incomingCommand);
                 writer.write(result);
                 writer.write("\n" + END_OF_TRANSMISSION + "\n");
                 writer.flush();
+                log.command(connectionId, incomingCommand, System.nanoTime() - receivedAt);
             }
+            log.connectionClosed(connectionId);
         }
     }
 }
@@ -0,0 +1,107 @@
+package edu.uob;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* The game engine keeps its state in plain HashMaps, so by default it must only ever be driven from one thread
+ at a time. This class is the single hand-off point between the network layer and GameServer.handleCommand: every
+ command is queued onto one game-state thread and executed in the order it was submitted.
+
+ With more than one worker thread the engine is switched into its concurrent mode, where each command only locks
+ the locations it touches, and commands in different rooms run in parallel. The workers no longer keep commands
+ in submission order, so a connection which pipelines commands uses submitAfter to keep its own commands in order.
+
+ The queue in front of the game-state thread is bounded. When it is full a command is not queued at all and
+ gets the SERVER_BUSY response straight away, so a burst of traffic is shed instead of building up an
+ ever-growing backlog. How long admitted commands wait in the queue is recorded in the QueueMetrics */
+
+public class GameStateExecutor implements CommandExecutor {
+
+    public static final int DEFAULT_QUEUE_DEPTH = 1024;
+    public static final String SERVER_BUSY = "Server busy- too many commands are waiting, please try again";
+
+    private final GameServer server;
+    private final ThreadPoolExecutor gameStateThread;
+    private final QueueMetrics metrics;
+    private final int workerThreads;
+    private final AtomicInteger nextWorkerNumber = new AtomicInteger();
+
+    public GameStateExecutor(GameServer server) {
+        this(server, DEFAULT_QUEUE_DEPTH);
+    }
+
+    public GameStateExecutor(GameServer server, int queueDepth) {
+        this(server, queueDepth, 1);
+    }
+
+    public GameStateExecutor(GameServer server, int queueDepth, int workerThreads) {
+        if (workerThreads < 1) {
+            throw new IllegalArgumentException("There must be at least one game-state thread");
+        }
+        this.server = server;
+        this.metrics = new QueueMetrics();
+        this.workerThreads = workerThreads;
+        if (workerThreads > 1) {
+            server.setConcurrentCommands(true);
+        }
+        this.gameStateThread = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueDepth), runnable -> {
+            Thread thread = new Thread(runnable, workerThreads == 1 ? "game-state" : "game-state-" + nextWorkerNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /* queues the command onto the game-state thread and returns a future holding the response. If the queue
+    * is full the returned future already holds the SERVER_BUSY response*/
+    @Override
+    public CompletableFuture<String> submit(String command) {
+        long queuedAt = System.nanoTime();
+        try {
+            CompletableFuture<String> response = CompletableFuture.supplyAsync(() -> {
+                metrics.recordQueueWait(System.nanoTime() - queuedAt);
+                return server.handleCommand(command);
+            }, gameStateThread);
+            metrics.recordAdmitted();
+            return response;
+        } catch (RejectedExecutionException e) {
+            metrics.recordRejected();
+            return CompletableFuture.completedFuture(SERVER_BUSY);
+        }
+    }
+
+    /* queues the command once the previous command from the same connection has finished, so a connection's
+    * commands never overtake each other. With a single game-state thread the queue already keeps them in order*/
+    @Override
+    public CompletableFuture<String> submitAfter(CompletableFuture<String> previous, String command) {
+        if (workerThreads == 1 || previous == null || previous.isDone()) {
+            return submit(command);
+        }
+        return previous.handle((result, exception) -> command).thenCompose(this::submit);
+    }
+
+    /* queues the command and waits for its response. This is what a connection thread calls*/
+    @Override
+    public String execute(String command) throws InterruptedException {
+        try {
+            return submit(command).get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Command failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public QueueMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void shutdown() {
+        gameStateThread.shutdown();
+    }
+}
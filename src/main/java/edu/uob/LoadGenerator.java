@@ -0,0 +1,216 @@
+package edu.uob;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+* A load-testing tool which simulates many concurrent players against a running {@link GameServer}.
+*
+* <p>Every simulated player opens its own session with {@link GameClient} (or {@link FramedGameClient}) and
+* plays a scripted scenario built from the game files: the basic commands, plus a "get" and a "drop" for every
+* artefact, a "goto" for every location and one command per action in the actions file (its first trigger
+* followed by its subjects). Between commands a player waits a random think time. When the run ends the tool
+* prints the throughput and the p50/p99/p999 command latency.
+*
+* <p>The players are called "bot" followed by letters. The engine looks for triggers and entity names anywhere
+* in a command, the username included, so names containing one are skipped; otherwise a bot called, say,
+* "botkey" would get errors no real player gets and skew the figures.
+*
+* <p>Options are given as {@code --name=value}: {@code host}, {@code port}, {@code players}, {@code seconds},
+* {@code think} (mean think time in milliseconds), {@code protocol} ({@code line} or {@code framed}),
+* {@code entities}, {@code actions} and {@code seed}. For example:
+* {@code --players=2000 --seconds=60 --think=200 --protocol=framed}
+*/
+public final class LoadGenerator {
+
+    private final String host;
+    private final int portNumber;
+    private final int players;
+    private final long durationMillis;
+    private final long meanThinkMillis;
+    private final boolean framed;
+    private final long seed;
+    private final List<String> scenario;
+    private final List<String> playerNames;
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder busyResponses = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        File entitiesFile = Paths.get(options.getOrDefault("entities", "config" + File.separator + "extended-entities.dot")).toAbsolutePath().toFile();
+        File actionsFile = Paths.get(options.getOrDefault("actions", "config" + File.separator + "extended-actions.xml")).toAbsolutePath().toFile();
+        EntitiesParserAndLoader entities = new EntitiesParserAndLoader(entitiesFile);
+        GameMap map = new GameMap(entities.getLocations(), entities.getPaths());
+        ActionsParserAndLoader actions = new ActionsParserAndLoader(actionsFile);
+        LoadGenerator generator = new LoadGenerator(
+                options.getOrDefault("host", "localhost"),
+                Integer.parseInt(options.getOrDefault("port", "8888")),
+                Integer.parseInt(options.getOrDefault("players", "100")),
+                TimeUnit.SECONDS.toMillis(Long.parseLong(options.getOrDefault("seconds", "30"))),
+                Long.parseLong(options.getOrDefault("think", "100")),
+                options.getOrDefault("protocol", "line").equals("framed"),
+                Long.parseLong(options.getOrDefault("seed", "1")),
+                buildScenario(map, actions),
+                name -> map.mentionsEntity(name) || actions.getTriggerMatcher().findTrigger(name) != null);
+        System.out.println(generator.run());
+    }
+
+    /* clashesWithGame tells whether a player name contains a trigger or an entity name*/
+    public LoadGenerator(String host, int portNumber, int players, long durationMillis, long meanThinkMillis,
+                         boolean framed, long seed, List<String> scenario, Predicate<String> clashesWithGame) {
+        this.host = host;
+        this.portNumber = portNumber;
+        this.players = players;
+        this.durationMillis = durationMillis;
+        this.meanThinkMillis = meanThinkMillis;
+        this.framed = framed;
+        this.seed = seed;
+        this.scenario = scenario;
+        this.playerNames = playerNames(players, clashesWithGame);
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options must look like --name=value: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    /* builds the list of commands the simulated players pick from, out of the game files as the server loads them*/
+    public static List<String> buildScenario(GameMap map, ActionsParserAndLoader actions) {
+        Set<String> commands = new LinkedHashSet<>(List.of("look", "inv", "health"));
+        for (StagLocation location : map.values()) {
+            commands.add("goto " + location.getName());
+            for (String artefact : location.getArtefacts().keySet()) {
+                commands.add("get " + artefact);
+                commands.add("drop " + artefact);
+            }
+        }
+        Set<GameAction> uniqueActions = new HashSet<>();
+        for (Map.Entry<String, HashSet<GameAction>> trigger : actions.getActionsMap().entrySet()) {
+            for (GameAction action : trigger.getValue()) {
+                if (uniqueActions.add(action)) {
+                    commands.add(trigger.getKey() + " " + String.join(" ", action.getSubjects()));
+                }
+            }
+        }
+        return new ArrayList<>(commands);
+    }
+
+    /* runs every simulated player until the duration is up and returns the report*/
+    public String run() throws InterruptedException {
+        ExecutorService playerThreads = ThreadPerConnectionListener.newConnectionExecutor();
+        CountDownLatch finished = new CountDownLatch(players);
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        for (int i = 0; i < players; i++) {
+            int playerNumber = i;
+            playerThreads.execute(() -> {
+                try {
+                    playScenario(playerNumber, deadline);
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+        finished.await();
+        playerThreads.shutdown();
+        return report(System.nanoTime() - startedAt);
+    }
+
+    /* one player's session: a random command from the scenario, then a random think time, until the deadline*/
+    private void playScenario(int playerNumber, long deadline) {
+        Random random = new Random(seed + playerNumber);
+        String username = playerNames.get(playerNumber);
+        try (CommandClient client = openClient(username)) {
+            while (System.nanoTime() < deadline) {
+                String command = scenario.get(random.nextInt(scenario.size()));
+                long sentAt = System.nanoTime();
+                String response = client.sendCommand(command);
+                latencies.record(System.nanoTime() - sentAt);
+                if (response.equals(GameStateExecutor.SERVER_BUSY)) {
+                    busyResponses.increment();
+                }
+                if (meanThinkMillis > 0) {
+                    Thread.sleep((long) (random.nextDouble() * 2 * meanThinkMillis));
+                }
+            }
+        } catch (IOException e) {
+            errors.increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CommandClient openClient(String username) throws IOException {
+        if (framed) {
+            return new FramedGameClient(host, portNumber, username);
+        }
+        return new GameClient(host, portNumber, username);
+    }
+
+    /* the first free names in order, skipping any which clash with the game*/
+    static List<String> playerNames(int players, Predicate<String> clashesWithGame) {
+        if (clashesWithGame.test("bot")) {
+            throw new IllegalArgumentException("Every player name starts with bot, which clashes with the game");
+        }
+        List<String> names = new ArrayList<>(players);
+        for (int candidate = 0; names.size() < players; candidate++) {
+            if (candidate == Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("There are not " + players + " player names which clash with nothing in the game");
+            }
+            String name = playerName(candidate);
+            if (!clashesWithGame.test(name)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    /* player names may only contain letters, so the player number is written in base 26*/
+    private static String playerName(int playerNumber) {
+        StringBuilder name = new StringBuilder();
+        int remaining = playerNumber;
+        do {
+            name.append((char) ('a' + remaining % 26));
+            remaining /= 26;
+        } while (remaining > 0);
+        return "bot" + name.reverse();
+    }
+
+    private String report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long commands = latencies.getCount();
+        return "players=" + players
+                + " protocol=" + (framed ? "framed" : "line")
+                + " commands=" + commands
+                + " seconds=" + String.format("%.1f", seconds)
+                + " throughput_per_second=" + String.format("%.1f", commands / seconds)
+                + " latency_p50_us=" + TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(50))
+                + " latency_p99_us=" + TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(99))
+                + " latency_p999_us=" + TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(99.9))
+                + " latency_max_us=" + TimeUnit.NANOSECONDS.toMicros(latencies.getMax())
+                + " busy=" + busyResponses.sum()
+                + " failed_sessions=" + errors.sum();
+    }
+}
@@ -0,0 +1,31 @@
+package edu.uob;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/* This class locks a set of locations for one command. Locks are always taken in increasing lock order and
+ released in reverse, so two commands that need overlapping sets of locations cannot deadlock */
+
+public final class LocationLocks {
+
+    private LocationLocks() {
+    }
+
+    /* locks every location in the collection and returns them in the order they were locked*/
+    public static List<StagLocation> lockAll(Collection<StagLocation> locations) {
+        List<StagLocation> ordered = new ArrayList<>(locations);
+        ordered.sort(Comparator.comparingInt(StagLocation::getLockOrder));
+        for (StagLocation location : ordered) {
+            location.getLock().lock();
+        }
+        return ordered;
+    }
+
+    public static void unlockAll(List<StagLocation> locked) {
+        for (int i = locked.size() - 1; i >= 0; i--) {
+            locked.get(i).getLock().unlock();
+        }
+    }
+}
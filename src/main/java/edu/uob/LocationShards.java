@@ -0,0 +1,170 @@
+package edu.uob;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* This class is the alternative to running the engine on a pool of game-state threads with locks. The locations
+ of the map are split across a number of single-threaded event loops, and each loop is the only thread which ever
+ touches its locations and the players standing in them. A command is routed to the loop owning the location of
+ the player who sent it, and new players go to the loop owning the starting location.
+
+ When a goto crosses into another loop's location, the player is taken out of their old location straight away
+ and their arrival is posted to the new location's loop as a message, so no loop ever waits for another. A command
+ which reaches a loop after its player has moved on is forwarded to the right loop. The storeroom is the one
+ location used by every loop (actions consume into it and produce out of it), so it is guarded by its own lock.
+
+ Each loop has its own admission limit; a command arriving while queueDepth commands are already waiting for
+ that loop gets SERVER_BUSY straight away. Arrivals and forwarded commands were already admitted, so they are
+ never turned away */
+
+public class LocationShards implements CommandExecutor, PlayerMover {
+
+    private final GameServer server;
+    private final ExecutorService[] loops;
+    private final AtomicInteger[] waiting;
+    private final Map<StagLocation, Integer> owners = new HashMap<>();
+    private final StagLocation startingLocation;
+    private final int queueDepth;
+    private final QueueMetrics metrics = new QueueMetrics();
+
+    public LocationShards(GameServer server, int queueDepth, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("There must be at least one shard");
+        }
+        this.server = server;
+        this.queueDepth = queueDepth;
+        this.loops = new ExecutorService[shards];
+        this.waiting = new AtomicInteger[shards];
+        for (int i = 0; i < shards; i++) {
+            String name = "location-shard-" + i;
+            loops[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            waiting[i] = new AtomicInteger();
+        }
+        /* locations are dealt out to the loops in map order, so neighbouring locations tend to land on different loops*/
+        int next = 0;
+        for (StagLocation location : server.getGameMap().values()) {
+            owners.put(location, next++ % shards);
+        }
+        this.startingLocation = server.getGameMap().getFirstLocation();
+        server.setShardedCommands(this);
+    }
+
+    /* returns the loop which owns the location. The map is fixed once it is loaded, so this never changes*/
+    private int ownerOf(StagLocation location) {
+        Integer owner = owners.get(location);
+        return owner == null ? 0 : owner;
+    }
+
+    /* returns the loop a command should run on, going by where its player is standing right now*/
+    private int route(String command) {
+        StagPlayer player = server.findPlayer(command);
+        return ownerOf(player == null ? startingLocation : player.getLocation());
+    }
+
+    @Override
+    public CompletableFuture<String> submit(String command) {
+        int shard = route(command);
+        if (waiting[shard].incrementAndGet() > queueDepth) {
+            waiting[shard].decrementAndGet();
+            metrics.recordRejected();
+            return CompletableFuture.completedFuture(GameStateExecutor.SERVER_BUSY);
+        }
+        metrics.recordAdmitted();
+        CompletableFuture<String> response = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        loops[shard].execute(() -> {
+            waiting[shard].decrementAndGet();
+            metrics.recordQueueWait(System.nanoTime() - queuedAt);
+            runOn(shard, command, response);
+        });
+        return response;
+    }
+
+    /* runs the command if this loop still owns the player's location, or passes it on to the loop which does.
+    * The player's lock is held while checking so that another connection of theirs cannot move them meanwhile*/
+    private void runOn(int shard, String command, CompletableFuture<String> response) {
+        StagPlayer player = server.findPlayer(command);
+        if (player == null) {
+            complete(response, command);
+            return;
+        }
+        player.getLock().lock();
+        try {
+            int owner = ownerOf(player.getLocation());
+            if (owner != shard) {
+                loops[owner].execute(() -> runOn(owner, command, response));
+                return;
+            }
+            complete(response, command);
+        }
+        finally {
+            player.getLock().unlock();
+        }
+    }
+
+    private void complete(CompletableFuture<String> response, String command) {
+        try {
+            response.complete(server.handleCommand(command));
+        } catch (RuntimeException e) {
+            response.completeExceptionally(e);
+        }
+    }
+
+    /* the player leaves their old location on this loop, and their arrival is handed to the loop which owns the
+    * new location. If the player has moved on again before the arrival is handled, it is ignored*/
+    @Override
+    public void movePlayer(StagPlayer player, StagLocation from, StagLocation to) {
+        from.removePlayer(player.getName());
+        player.setLocation(to);
+        int owner = ownerOf(to);
+        if (owner == ownerOf(from)) {
+            to.addPlayer(player.getName(), player);
+            return;
+        }
+        loops[owner].execute(() -> {
+            if (player.getLocation() == to) {
+                to.addPlayer(player.getName(), player);
+            }
+        });
+    }
+
+    /* commands from one connection always go through the loops one at a time, as the loop they need depends on
+    * where the previous command left the player*/
+    @Override
+    public CompletableFuture<String> submitAfter(CompletableFuture<String> previous, String command) {
+        if (previous == null || previous.isDone()) {
+            return submit(command);
+        }
+        return previous.handle((result, exception) -> command).thenCompose(this::submit);
+    }
+
+    @Override
+    public String execute(String command) throws InterruptedException {
+        try {
+            return submit(command).get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Command failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public QueueMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void shutdown() {
+        for (ExecutorService loop : loops) {
+            loop.shutdown();
+        }
+    }
+}
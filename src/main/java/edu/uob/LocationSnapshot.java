@@ -0,0 +1,129 @@
+package edu.uob;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/* An immutable copy of what can be seen in a location at one moment. StagLocation builds a new one the first time it
+ is read after a change and publishes it through a volatile field, so look can read a consistent view of a location
+ from any thread, and only takes the location's lock when it is the first to look since the location changed.
+
+ Building a snapshot only copies the lists of entities. The text look shows is rendered the first time someone
+ looks and then kept, in two parts either side of the players, so a room which changes often but is rarely
+ looked at never renders anything, and a busy room is rendered at most once per change however many players look.
+ Each player's view is the cached parts with the other players' lines in between */
+
+public final class LocationSnapshot {
+
+    private final String name;
+    private final String description;
+    private final long version;
+    private final List<StagCharacter> characters;
+    private final List<StagArtefact> artefactEntities;
+    private final List<StagFurniture> furniture;
+    private final List<StagPlayer> players;
+    private final List<String> exits;
+    private final List<String> artefacts;
+    private final List<String> playerNames;
+    /* rendered on first use. Strings are immutable, so a thread which sees null just renders the same text again*/
+    private String beforePlayers;
+    private String afterPlayers;
+    private String text;
+
+    LocationSnapshot(StagLocation location, long version) {
+        this.name = location.getName();
+        this.description = location.getDescription();
+        this.version = version;
+        this.characters = List.copyOf(location.getCharacters().values());
+        this.artefactEntities = List.copyOf(location.getArtefacts().values());
+        this.furniture = List.copyOf(location.getFurniture().values());
+        this.players = List.copyOf(location.getPlayers().values());
+        this.exits = List.copyOf(location.getExits().keySet());
+        this.artefacts = List.copyOf(location.getArtefacts().keySet());
+        List<String> names = new ArrayList<>();
+        for (StagPlayer player : players) {
+            names.add(player.getName());
+        }
+        this.playerNames = List.copyOf(names);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /* the location's version when this snapshot was taken. It goes up by one with every change*/
+    public long getVersion() {
+        return version;
+    }
+
+    public List<String> getArtefacts() {
+        return artefacts;
+    }
+
+    public List<String> getPlayerNames() {
+        return playerNames;
+    }
+
+    /* the text look shows for this location, with every player in it*/
+    @Override
+    public String toString() {
+        String rendered = text;
+        if (rendered == null) {
+            rendered = render(null);
+            text = rendered;
+        }
+        return rendered;
+    }
+
+    /* the text look shows to one player, which is everything except their own line*/
+    public String viewFor(String playerName) {
+        if (!playerNames.contains(playerName)) {
+            return toString();
+        }
+        return render(playerName);
+    }
+
+    private String render(String skippedPlayer) {
+        String before = beforePlayers;
+        if (before == null) {
+            before = renderBeforePlayers();
+            beforePlayers = before;
+        }
+        String after = afterPlayers;
+        if (after == null) {
+            after = "Exits:\n" + exits + "\n";
+            afterPlayers = after;
+        }
+        StringBuilder sb = new StringBuilder(before.length() + after.length() + 32 * players.size());
+        sb.append(before);
+        for (StagPlayer player : players) {
+            if (!player.getName().equals(skippedPlayer)) {
+                appendLine(sb, player);
+            }
+        }
+        return sb.append(after).toString();
+    }
+
+    private String renderBeforePlayers() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Location Name: ").append(name).append("\n");
+        sb.append("Location Description: ").append(description).append("\n");
+        sb.append("Characters:\n");
+        for (StagCharacter character : characters) {
+            appendLine(sb, character);
+        }
+        sb.append("Artefacts:\n");
+        for (StagArtefact artefact : artefactEntities) {
+            appendLine(sb, artefact);
+        }
+        sb.append("Furniture:\n");
+        for (StagFurniture piece : furniture) {
+            appendLine(sb, piece);
+        }
+        sb.append("Players:\n");
+        return sb.toString();
+    }
+
+    private static void appendLine(StringBuilder sb, GameEntity entity) {
+        sb.append(entity.getName()).append(": ").append(entity.getDescription()).append("\n");
+    }
+}
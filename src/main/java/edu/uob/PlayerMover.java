@@ -0,0 +1,15 @@
+package edu.uob;
+
+/* Moves a player from one location to another for the goto command. The default mover does it all at once;
+ LocationShards hands the arrival over to the event loop which owns the new location */
+
+public interface PlayerMover {
+
+    PlayerMover DIRECT = (player, from, to) -> {
+        from.removePlayer(player.getName());
+        player.setLocation(to);
+        to.addPlayer(player.getName(), player);
+    };
+
+    void movePlayer(StagPlayer player, StagLocation from, StagLocation to);
+}
@@ -0,0 +1,40 @@
+package edu.uob;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/* This class keeps every player in the game by name. It is read on every command, so looking a player up never
+ takes a lock. A new player is created exactly once per name even if several of their first commands arrive at
+ the same time on different threads: only one of them runs the factory and the others get that player back */
+
+public class PlayerRegistry {
+
+    private final ConcurrentHashMap<String, StagPlayer> players = new ConcurrentHashMap<>();
+
+    /* returns the player with that name, or null if they have not joined the game*/
+    public StagPlayer get(String name) {
+        return players.get(name);
+    }
+
+    /* returns the player with that name, creating them with the factory if they have not joined the game yet.
+    * The lock-free lookup is tried first so that existing players never touch the map's locks*/
+    public StagPlayer getOrCreate(String name, Function<String, StagPlayer> factory) {
+        StagPlayer player = players.get(name);
+        if (player != null) {
+            return player;
+        }
+        return players.computeIfAbsent(name, factory);
+    }
+
+    public int size() {
+        return players.size();
+    }
+
+    /* a read-only live view of the players, for admin tools. Iterating it never blocks the game and never
+    * throws ConcurrentModificationException, but may or may not include players who join meanwhile*/
+    public Collection<StagPlayer> players() {
+        return Collections.unmodifiableCollection(players.values());
+    }
+}
@@ -0,0 +1,43 @@
+package edu.uob;
+
+import java.util.Map;
+import java.util.Set;
+
+/* An immutable copy of a player's health and inventory at one moment. StagPlayer publishes a new one after every
+ change, so inv and health can be answered from any thread without taking the player's lock */
+
+public final class PlayerSnapshot {
+
+    private final String name;
+    private final int health;
+    private final Set<String> inventoryNames;
+    private final String inventoryText;
+
+    PlayerSnapshot(StagPlayer player) {
+        this.name = player.getName();
+        this.health = player.getHealth();
+        StringBuilder inventory = new StringBuilder();
+        for (Map.Entry<String, StagArtefact> entry : player.getInventory().entrySet()) {
+            inventory.append(entry.getKey()).append(": ").append(entry.getValue().getDescription()).append("\n");
+        }
+        this.inventoryNames = Set.copyOf(player.getInventory().keySet());
+        this.inventoryText = inventory.toString();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getHealth() {
+        return health;
+    }
+
+    public Set<String> getInventoryNames() {
+        return inventoryNames;
+    }
+
+    /* the text inv shows, one "name: description" line per artefact*/
+    public String getInventoryText() {
+        return inventoryText;
+    }
+}
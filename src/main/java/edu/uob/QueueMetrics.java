@@ -0,0 +1,48 @@
+package edu.uob;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/* This class records what happens at the admission queue in front of the game engine: how many commands were
+ admitted or turned away because the queue was full, and how long admitted commands waited before the
+ game-state thread started on them */
+
+public class QueueMetrics {
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    public void recordAdmitted() {
+        admitted.increment();
+    }
+
+    public void recordRejected() {
+        rejected.increment();
+    }
+
+    public void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    @Override
+    public String toString() {
+        return "admitted=" + getAdmitted()
+                + " rejected=" + getRejected()
+                + " wait_p50_us=" + TimeUnit.NANOSECONDS.toMicros(queueWait.getPercentile(50))
+                + " wait_p99_us=" + TimeUnit.NANOSECONDS.toMicros(queueWait.getPercentile(99))
+                + " wait_max_us=" + TimeUnit.NANOSECONDS.toMicros(queueWait.getMax());
+    }
+}
@@ -0,0 +1,390 @@
+package edu.uob;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+
+/* This class is the non-blocking alternative to GameServer.blockingListenOn. A single selector thread
+ accepts connections and reads/writes every client, so one slow client can no longer stall the other players.
+ Each connection keeps its own read and write buffers and incoming bytes are split into lines. Every
+ complete line is submitted to the GameStateExecutor, and once its response is ready it is sent back with the
+ same newline plus END_OF_TRANSMISSION framing that the blocking server uses. A connection is a session:
+ the client can keep sending "username: command" lines over it and gets one response per line, in order. A
+ client which opens with the FramedProtocol handshake byte gets the length-prefixed framed protocol instead.
+
+ A client which sends commands faster than it reads the responses is held back: once it has too many responses
+ outstanding the selector stops reading from it, the commands it has already sent wait in its read buffer and
+ the socket, and reading starts again when it has caught up */
+
+public class SelectorListener {
+
+    private static final char END_OF_TRANSMISSION = 4;
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int WRITE_BUFFER_SIZE = 8192;
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+    /* a connection stops being read while it has this many commands waiting for a response, or this many bytes of
+    * responses the client has not read yet, so a client which never reads cannot make the server hold an
+    * unbounded amount of work for it*/
+    private static final int MAX_PENDING_RESPONSES = 128;
+    private static final int MAX_BUFFERED_OUTPUT = 256 * 1024;
+
+    private final CommandExecutor gameStateExecutor;
+    private final GameLog log;
+    /* connections with a response which has just been completed by the game-state thread*/
+    private final Queue<SelectionKey> completedConnections = new ConcurrentLinkedQueue<>();
+
+    public SelectorListener(GameServer server) {
+        this(server, GameStateExecutor.DEFAULT_QUEUE_DEPTH);
+    }
+
+    public SelectorListener(GameServer server, int queueDepth) {
+        this(server, queueDepth, 1);
+    }
+
+    public SelectorListener(GameServer server, int queueDepth, int workerThreads) {
+        this(server, new GameStateExecutor(server, queueDepth, workerThreads));
+    }
+
+    public SelectorListener(GameServer server, CommandExecutor gameStateExecutor) {
+        this.gameStateExecutor = gameStateExecutor;
+        this.log = server.getLog();
+    }
+
+    /* this method opens the server channel and runs the selector loop until the current thread is interrupted*/
+    public void listenOn(int portNumber) throws IOException {
+        log.start();
+        try (Selector selector = Selector.open();
+        ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(portNumber));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+            log.info("Server listening on port " + portNumber + " (non-blocking)");
+            while (!Thread.interrupted()) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        handleKey(key, selector);
+                    } catch (IOException e) {
+                        log.info("Connection closed: " + e.getMessage());
+                        closeConnection(key);
+                    }
+                }
+                SelectionKey completed;
+                while ((completed = completedConnections.poll()) != null) {
+                    try {
+                        queueCompletedResponses(completed);
+                    } catch (IOException e) {
+                        log.info("Connection closed: " + e.getMessage());
+                        closeConnection(completed);
+                    }
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    closeConnection(key);
+                }
+            }
+        }
+        finally {
+            gameStateExecutor.shutdown();
+            log.info("Admission queue: " + gameStateExecutor.getMetrics());
+            log.stop();
+        }
+    }
+
+    private void handleKey(SelectionKey key, Selector selector) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            acceptConnection((ServerSocketChannel) key.channel(), selector);
+            return;
+        }
+        if (key.isReadable()) {
+            readFromConnection(key);
+        }
+        if (key.isValid() && key.isWritable()) {
+            writeToConnection(key);
+        }
+    }
+
+    /* accepts every pending connection and registers it for reads with a fresh set of buffers*/
+    private void acceptConnection(ServerSocketChannel serverChannel, Selector selector) throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            Connection connection = new Connection(log.nextConnectionId());
+            channel.register(selector, SelectionKey.OP_READ, connection);
+            log.connectionOpened(connection.connectionId);
+        }
+    }
+
+    /* reads whatever is available and submits every complete command in the order it arrived. The first byte
+    * of a connection decides whether it speaks the line protocol or the framed protocol. A connection is a
+    * session, so it stays open for further commands until the client closes its side; any responses which are
+    * still outstanding at that point are written before the connection is closed*/
+    private void readFromConnection(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        if (channel.read(connection.readBuffer) == -1) {
+            connection.inputClosed = true;
+        }
+        processInput(key, connection);
+    }
+
+    /* submits the commands in the read buffer until there are none left or the connection is backed up, leaving
+    * the rest for when it has caught up. Once the client has closed its side and everything before it has been
+    * submitted, a last line without a newline is still a command, as it was to BufferedReader.readLine in the
+    * blocking server, and a partly received frame is thrown away*/
+    private void processInput(SelectionKey key, Connection connection) throws IOException {
+        ByteBuffer readBuffer = connection.readBuffer;
+        readBuffer.flip();
+        if (!connection.negotiated && readBuffer.hasRemaining()) {
+            negotiateProtocol(connection);
+        }
+        if (connection.framed) {
+            readFrames(key, connection);
+        }
+        else {
+            readLines(key, connection);
+        }
+        if (connection.inputClosed && !connection.isBackedUp()) {
+            if (!connection.framed && connection.currentLine.size() > 0) {
+                submitCommand(key, connection, connection.takeLine());
+            }
+            readBuffer.position(readBuffer.limit());
+            connection.neededReadCapacity = 0;
+        }
+        connection.compactReadBuffer();
+        updateInterest(key, connection);
+    }
+
+    /* a framed client announces itself with the handshake byte, which is answered with the same byte*/
+    private void negotiateProtocol(Connection connection) {
+        connection.negotiated = true;
+        if (connection.readBuffer.get(connection.readBuffer.position()) == FramedProtocol.HANDSHAKE) {
+            connection.readBuffer.get();
+            connection.framed = true;
+            connection.writeBuffer = FramedProtocol.ensureRemaining(connection.writeBuffer, 1);
+            connection.writeBuffer.put(FramedProtocol.HANDSHAKE);
+        }
+    }
+
+    /* splits the received bytes into lines and submits every complete one*/
+    private void readLines(SelectionKey key, Connection connection) throws IOException {
+        ByteBuffer readBuffer = connection.readBuffer;
+        while (readBuffer.hasRemaining() && !connection.isBackedUp()) {
+            byte next = readBuffer.get();
+            if (next == '\n') {
+                submitCommand(key, connection, connection.takeLine());
+            }
+            else {
+                connection.appendToLine(next);
+            }
+        }
+    }
+
+    /* submits every complete frame in the read buffer. A partly received frame stays in the buffer, which is
+    * grown if the frame would not fit in it*/
+    private void readFrames(SelectionKey key, Connection connection) throws IOException {
+        ByteBuffer readBuffer = connection.readBuffer;
+        int frameLength;
+        while (!connection.isBackedUp() && (frameLength = FramedProtocol.frameLength(readBuffer)) != -1) {
+            if (readBuffer.remaining() < frameLength) {
+                connection.neededReadCapacity = frameLength;
+                return;
+            }
+            if (FramedProtocol.opcode(readBuffer) != FramedProtocol.COMMAND) {
+                throw new IOException("Unexpected frame opcode " + FramedProtocol.opcode(readBuffer));
+            }
+            submitCommand(key, connection, FramedProtocol.takePayload(readBuffer));
+        }
+    }
+
+    /* hands the command to the game-state thread. The connection keeps its responses in submission order and
+    * the selector is woken up to send them once they complete. A command turned away by a full queue
+    * completes straight away with the busy response*/
+    private void submitCommand(SelectionKey key, Connection connection, String incomingCommand) {
+        CompletableFuture<String> response = gameStateExecutor.submitAfter(connection.lastSubmitted, incomingCommand);
+        connection.lastSubmitted = response;
+        connection.pendingResponses.add(new PendingResponse(incomingCommand, response));
+        if (response.isDone()) {
+            completedConnections.add(key);
+            return;
+        }
+        response.whenComplete((result, exception) -> {
+            completedConnections.add(key);
+            key.selector().wakeup();
+        });
+    }
+
+    /* encodes every response at the head of the connection's queue which has completed, so responses always
+    * go out in the order their commands arrived*/
+    private void queueCompletedResponses(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        Connection connection = (Connection) key.attachment();
+        while (!connection.pendingResponses.isEmpty() && connection.pendingResponses.peek().response.isDone()) {
+            PendingResponse pending = connection.pendingResponses.poll();
+            log.command(connection.connectionId, pending.command, System.nanoTime() - pending.receivedAt);
+            String result;
+            try {
+                result = pending.response.get();
+            } catch (ExecutionException e) {
+                throw new IOException("Command failed: " + e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (connection.framed) {
+                connection.writeBuffer = FramedProtocol.appendFrame(connection.writeBuffer, FramedProtocol.RESPONSE, result);
+            }
+            else {
+                connection.queueBytes((result + "\n" + END_OF_TRANSMISSION + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        resumeOrUpdateInterest(key, connection);
+    }
+
+    /* writes as much of the queued responses as the socket accepts*/
+    private void writeToConnection(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        connection.writeBuffer.flip();
+        channel.write(connection.writeBuffer);
+        connection.writeBuffer.compact();
+        resumeOrUpdateInterest(key, connection);
+    }
+
+    /* a connection which stopped reading because it was backed up first submits the commands already waiting in
+    * its read buffer once it has room again*/
+    private void resumeOrUpdateInterest(SelectionKey key, Connection connection) throws IOException {
+        if (!connection.isBackedUp() && connection.hasUnprocessedInput()) {
+            processInput(key, connection);
+        }
+        else {
+            updateInterest(key, connection);
+        }
+    }
+
+    /* a connection waits for reads until the client closes its side, unless it is backed up, and for writes
+    * while responses are queued. It is closed once the client has closed its side and every command has been
+    * submitted and every response sent*/
+    private void updateInterest(SelectionKey key, Connection connection) {
+        if (connection.inputClosed && !connection.hasPendingWrites() && connection.pendingResponses.isEmpty()
+                && !connection.hasUnprocessedInput()) {
+            closeConnection(key);
+            return;
+        }
+        int interestOps = connection.inputClosed || connection.isBackedUp() ? 0 : SelectionKey.OP_READ;
+        if (connection.hasPendingWrites()) {
+            interestOps |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(interestOps);
+    }
+
+    private void closeConnection(SelectionKey key) {
+        if (key.isValid() && key.attachment() instanceof Connection) {
+            log.connectionClosed(((Connection) key.attachment()).connectionId);
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            log.info("Connection closed: " + e.getMessage());
+        }
+    }
+
+    /* A command which has been handed to the game-state thread, kept with the time it arrived so its latency
+    * can be logged once the response is ready*/
+    private static class PendingResponse {
+        private final String command;
+        private final CompletableFuture<String> response;
+        private final long receivedAt = System.nanoTime();
+
+        private PendingResponse(String command, CompletableFuture<String> response) {
+            this.command = command;
+            this.response = response;
+        }
+    }
+
+    /* The per-connection state: a reusable read buffer, the bytes of the line received so far, the responses
+    * which are still being worked on and a reusable write buffer holding the responses which are waiting to be
+    * written. Both buffers are kept ready for appending and only grow when a frame or response does not fit*/
+    private static class Connection {
+        private final long connectionId;
+        private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private final ByteArrayOutputStream currentLine = new ByteArrayOutputStream();
+        private final ArrayDeque<PendingResponse> pendingResponses = new ArrayDeque<>();
+        private ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        private boolean inputClosed = false;
+        private boolean negotiated = false;
+        private boolean framed = false;
+        private int neededReadCapacity = 0;
+        private CompletableFuture<String> lastSubmitted = null;
+
+        private Connection(long connectionId) {
+            this.connectionId = connectionId;
+        }
+
+        private void appendToLine(byte next) throws IOException {
+            if (currentLine.size() >= MAX_LINE_LENGTH) {
+                throw new IOException("Command line is too long");
+            }
+            currentLine.write(next);
+        }
+
+        private String takeLine() {
+            String line = currentLine.toString(StandardCharsets.UTF_8);
+            currentLine.reset();
+            if (line.endsWith("\r")) {
+                line = line.substring(0, line.length() - 1);
+            }
+            return line;
+        }
+
+        private void queueBytes(byte[] bytes) {
+            writeBuffer = FramedProtocol.ensureRemaining(writeBuffer, bytes.length);
+            writeBuffer.put(bytes);
+        }
+
+        /* keeps any partly received frame and makes room for the rest of it*/
+        private void compactReadBuffer() {
+            readBuffer.compact();
+            if (neededReadCapacity > readBuffer.capacity()) {
+                readBuffer = FramedProtocol.ensureRemaining(readBuffer, neededReadCapacity - readBuffer.position());
+            }
+            neededReadCapacity = 0;
+        }
+
+        private boolean hasPendingWrites() {
+            return writeBuffer.position() > 0;
+        }
+
+        private boolean isBackedUp() {
+            return pendingResponses.size() >= MAX_PENDING_RESPONSES || writeBuffer.position() >= MAX_BUFFERED_OUTPUT;
+        }
+
+        /* bytes which have been read but not yet submitted, including a last line still to be submitted after
+        * the client closed its side*/
+        private boolean hasUnprocessedInput() {
+            return readBuffer.position() > 0 || (inputClosed && currentLine.size() > 0);
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package edu.uob;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /* This class represents the attributes and methods of locations in the game*/
 public class StagLocation extends GameEntity {
@@ -10,6 +14,23 @@ public class StagLocation extends GameEntity {
     /* the hash map below adds new Entities which get produced */
     private HashMap<String, StagLocation> exits;
     private EntityType type;
+    /* locations are always locked in increasing lockOrder so that commands touching several locations
+    * can never deadlock each other*/
+    private static final AtomicInteger nextLockOrder = new AtomicInteger();
+    private final int lockOrder = nextLockOrder.getAndIncrement();
+    private final ReentrantLock lock = new ReentrantLock();
+    /* built on the first read after a change rather than on every change, so loading a location or a run of
+    * changes to a busy room copies its lists once instead of once per change*/
+    private volatile LocationSnapshot snapshot;
+    /* goes up by one with every change, and is stamped on each snapshot. Only changed under the location's lock*/
+    private volatile long version;
+    /* how many snapshots have been built, so tests can check they are not built per change*/
+    private int snapshotsBuilt;
+    private final List<GameChangeListener> listeners = new CopyOnWriteArrayList<>();
+    /* the ids of the artefacts, characters and furniture here, and of the locations the exits lead to, kept
+    * alongside the maps so membership checks on the hot path are a bit test*/
+    private final EntityBits contentIds = new EntityBits();
+    private final EntityBits exitIds = new EntityBits();
 
     public StagLocation(String name, String description) {
         super(name, description);
@@ -25,28 +46,44 @@ public class StagLocation extends GameEntity {
 
     public void addPlayer(String name, StagPlayer player) {
         this.players.put(name, player);
+        changed();
+        notifyListeners(GameChange.Kind.PLAYER_ENTERED, name);
     }
 
     public void removePlayer(String name) {
-        if (players.containsKey(name)) {
-            players.remove(name);
+        /* nothing is changed when the player was not here, so the version only moves on a real change*/
+        if (players.remove(name) != null) {
+            changed();
+            notifyListeners(GameChange.Kind.PLAYER_LEFT, name);
         }
     }
 
     public void addFurniture(String furnitureName, StagFurniture furniture) {
         this.furniture.put(furnitureName, furniture);
+        setBit(contentIds, furniture);
+        changed();
+        notifyListeners(GameChange.Kind.ENTITY_ADDED, furnitureName);
     }
 
     public void addCharacter(String characterName, StagCharacter character) {
         this.characters.put(characterName, character);
+        setBit(contentIds, character);
+        changed();
+        notifyListeners(GameChange.Kind.ENTITY_ADDED, characterName);
     }
 
     public void addArtefact(String artefactName, StagArtefact artefact) {
         this.artefacts.put(artefactName, artefact);
+        setBit(contentIds, artefact);
+        changed();
+        notifyListeners(GameChange.Kind.ENTITY_ADDED, artefactName);
     }
 
     public void addExit(String exit, StagLocation exitToLocation) {
         this.exits.put(exit, exitToLocation);
+        setBit(exitIds, exitToLocation);
+        changed();
+        notifyListeners(GameChange.Kind.EXIT_ADDED, exit);
     }
 
 
@@ -59,6 +96,41 @@ public class StagLocation extends GameEntity {
         }
     }
 
+    /* the same as containsEntity, by entity id*/
+    public boolean containsEntity(int id) {
+        return contentIds.get(id) || exitIds.get(id);
+    }
+
+    /* the same as containsEntityExcludingExits, by entity id*/
+    public boolean containsEntityExcludingExits(int id) {
+        return contentIds.get(id);
+    }
+
+    /* sets the id bits again from the maps, for entities which were put here before they were given their ids*/
+    void refreshEntityIds() {
+        contentIds.clearAll();
+        exitIds.clearAll();
+        for (GameEntity entity : furniture.values()) {
+            contentIds.set(entity.getId());
+        }
+        for (GameEntity entity : characters.values()) {
+            contentIds.set(entity.getId());
+        }
+        for (GameEntity entity : artefacts.values()) {
+            contentIds.set(entity.getId());
+        }
+        for (StagLocation exit : exits.values()) {
+            if (exit != null) {
+                exitIds.set(exit.getId());
+            }
+        }
+    }
+
+    /* the ids of the artefacts, characters and furniture here*/
+    public EntityBits getContentIds() {
+        return contentIds;
+    }
+
     public boolean containsEntityExcludingExits(String name) {
         if (furniture.containsKey(name) || characters.containsKey(name) || artefacts.containsKey(name)) {
             return true;
@@ -68,16 +140,23 @@ public class StagLocation extends GameEntity {
     }
 
     public void removeEntity(String entity) {
+        GameChange.Kind removed = GameChange.Kind.ENTITY_REMOVED;
         if (furniture.containsKey(entity)) {
-            furniture.remove(entity);
+            clearBit(contentIds, furniture.remove(entity));
         } else if (characters.containsKey(entity)) {
-            characters.remove(entity);
+            clearBit(contentIds, characters.remove(entity));
         } else if (artefacts.containsKey(entity)) {
-            artefacts.remove(entity);
+            clearBit(contentIds, artefacts.remove(entity));
         }
         else if(exits.containsKey(entity)){
-            exits.remove(entity);
+            clearBit(exitIds, exits.remove(entity));
+            removed = GameChange.Kind.EXIT_REMOVED;
+        }
+        else {
+            return;
         }
+        changed();
+        notifyListeners(removed, entity);
     }
 
     @Override
@@ -126,45 +205,120 @@ public class StagLocation extends GameEntity {
 
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Location Name: ").append(this.name).append("\n");
-        sb.append("Location Description: ").append(this.description).append("\n");
-        sb.append("Characters:\n");
-        for (StagCharacter character : this.characters.values()) {
-            sb.append(character.getName()).append(": ").append(character.getDescription()).append("\n");
-        }
-        sb.append("Artefacts:\n");
-        for (StagArtefact artefact : this.artefacts.values()) {
-            sb.append(artefact.getName()).append(": ").append(artefact.getDescription()).append("\n");
-        }
-        sb.append("Furniture:\n");
-        for (StagFurniture furniture : this.furniture.values()) {
-            sb.append(furniture.getName()).append(": ").append(furniture.getDescription()).append("\n");
-        }
-        sb.append("Players:\n");
-        for (StagPlayer player : this.players.values()) {
-            if (!player.getLocation().equals(player.getName())) {
-                sb.append(player.getName()).append(": ").append(player.getDescription()).append("\n");
+        return getSnapshot().toString();
+    }
+
+    /* the view of this location as of its latest change. If it has changed since the last snapshot a new one is
+    * built under the location's lock, so the lists are never copied halfway through someone else's command. Must
+    * not be called while holding another location's lock, as it could then be locked out of order*/
+    public LocationSnapshot getSnapshot() {
+        LocationSnapshot latest = snapshot;
+        if (latest != null && latest.getVersion() == version) {
+            return latest;
+        }
+        lock.lock();
+        try {
+            latest = snapshot;
+            if (latest == null || latest.getVersion() != version) {
+                latest = new LocationSnapshot(this, version);
+                snapshotsBuilt++;
+                snapshot = latest;
             }
+            return latest;
+        }
+        finally {
+            lock.unlock();
         }
-        sb.append("Exits:\n");
-        sb.append(this.exits.keySet()).append("\n");
+    }
+
+    int getSnapshotsBuilt() {
+        return snapshotsBuilt;
+    }
 
-        return sb.toString();
+    /* keeps the id bits and the entity's container in step with the maps. Exits only lead to a location,
+    * they do not hold it, so they never change its container*/
+    private void setBit(EntityBits ids, GameEntity entity) {
+        if (entity != null) {
+            ids.set(entity.getId());
+            if (ids == contentIds) {
+                entity.placeIn(this);
+            }
+        }
+    }
+
+    private void clearBit(EntityBits ids, GameEntity entity) {
+        if (entity != null) {
+            ids.clear(entity.getId());
+            if (ids == contentIds) {
+                entity.takeFrom(this);
+            }
+        }
+    }
+
+    /* the snapshot is left as it is and only rebuilt when someone next reads it*/
+    private void changed() {
+        version++;
+    }
+
+    /* counts the changes to this location. A snapshot taken now would carry this version*/
+    public long getVersion() {
+        return version;
+    }
+
+    public void addListener(GameChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GameChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners(GameChange.Kind kind, String entityName) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        GameChange change = new GameChange(kind, this, entityName, version);
+        for (GameChangeListener listener : listeners) {
+            listener.onChange(change);
+        }
     }
 
     public void removeArtefact(String entity) {
-        artefacts.remove(entity);
+        StagArtefact artefact = artefacts.remove(entity);
+        if (artefact == null) {
+            return;
+        }
+        clearBit(contentIds, artefact);
+        changed();
+        notifyListeners(GameChange.Kind.ENTITY_REMOVED, entity);
     }
 
     public void addArtefacts(HashMap<String, StagArtefact> newArtefacts) {
+        if (newArtefacts.isEmpty()) {
+            return;
+        }
         artefacts.putAll(newArtefacts);
+        for (StagArtefact artefact : newArtefacts.values()) {
+            setBit(contentIds, artefact);
+        }
+        changed();
+        for (String artefactName : newArtefacts.keySet()) {
+            notifyListeners(GameChange.Kind.ENTITY_ADDED, artefactName);
+        }
     }
 
     public HashMap<String, StagPlayer> getPlayers(){
         return this.players;
     }
 
+    public ReentrantLock getLock() {
+        return lock;
+    }
+
+    public int getLockOrder() {
+        return lockOrder;
+    }
+
 
 
 }
@@ -3,12 +3,25 @@ package edu.uob;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
 
 /* This class represents the attributes and methods of a player in the game*/
 public class StagPlayer extends GameEntity {
     private int health;
     private HashMap<String, StagArtefact> inventory;
-    private StagLocation currentLocation;
+    /* volatile because other players' look commands read it without holding this player's lock*/
+    private volatile StagLocation currentLocation;
+    /* held for the whole of each of this player's commands when the engine runs commands concurrently*/
+    private final ReentrantLock lock = new ReentrantLock();
+    /* rebuilt after every change to health or inventory, so inv and health never need the lock*/
+    private volatile PlayerSnapshot snapshot;
+    /* the entity ids of the artefacts in the inventory*/
+    private final EntityBits inventoryIds = new EntityBits();
+    /* goes up by one with every change to the player. Only changed under the player's lock*/
+    private volatile long version;
+    private final List<GameChangeListener> listeners = new CopyOnWriteArrayList<>();
 
     public StagPlayer(String name, String description, int health) {
         super(name, description);
@@ -16,6 +29,7 @@ public class StagPlayer extends GameEntity {
         this.inventory = new HashMap<>();
         this.name = name;
         this.description = description;
+        publishSnapshot();
     }
 
     public StagLocation getLocation() {
@@ -24,6 +38,7 @@ public class StagPlayer extends GameEntity {
 
     public void setLocation(StagLocation location) {
         this.currentLocation = location;
+        changed(GameChange.Kind.PLAYER_MOVED, name);
     }
 
     public int getHealth() {
@@ -32,6 +47,8 @@ public class StagPlayer extends GameEntity {
 
     public void setHealth(int health) {
         this.health = health;
+        publishSnapshot();
+        changed(GameChange.Kind.HEALTH_CHANGED, name);
     }
 
     public HashMap<String, StagArtefact> getInventory() {
@@ -40,6 +57,10 @@ public class StagPlayer extends GameEntity {
 
     public void addToInventory(StagArtefact artefact) {
         inventory.put(artefact.getName(), artefact);
+        inventoryIds.set(artefact.getId());
+        artefact.placeIn(this);
+        publishSnapshot();
+        changed(GameChange.Kind.INVENTORY_ADDED, artefact.getName());
     }
 
     public void removeFromInventory(String entity) {
@@ -49,6 +70,10 @@ public class StagPlayer extends GameEntity {
             Map.Entry<String, StagArtefact> entry = iterator.next();
             if (entry.getKey().equals(entity) || entry.getValue().getName().equals(entity)) {
                 iterator.remove();
+                inventoryIds.clear(entry.getValue().getId());
+                entry.getValue().takeFrom(this);
+                publishSnapshot();
+                changed(GameChange.Kind.INVENTORY_REMOVED, entry.getValue().getName());
                 return;
             }
         }
@@ -58,13 +83,65 @@ public class StagPlayer extends GameEntity {
         return inventory.containsKey(artefactName);
     }
 
+    /* the same as hasArtefact, by entity id*/
+    public boolean hasArtefact(int id) {
+        return inventoryIds.get(id);
+    }
+
+    public EntityBits getInventoryIds() {
+        return inventoryIds;
+    }
+
     public StagArtefact getArtefactByName(String name) {
         return inventory.get(name);
     }
 
+    public ReentrantLock getLock() {
+        return lock;
+    }
+
+    /* the latest published health and inventory of this player*/
+    public PlayerSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private void publishSnapshot() {
+        snapshot = new PlayerSnapshot(this);
+    }
+
     public void dropInventoryInLocation() {
         currentLocation.addArtefacts(inventory);
+        List<String> dropped = List.copyOf(inventory.keySet());
         inventory.clear();
+        inventoryIds.clearAll();
+        publishSnapshot();
+        for (String artefactName : dropped) {
+            changed(GameChange.Kind.INVENTORY_REMOVED, artefactName);
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void addListener(GameChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GameChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /* bumps the version and tells the listeners*/
+    private void changed(GameChange.Kind kind, String entityName) {
+        long now = ++version;
+        if (listeners.isEmpty()) {
+            return;
+        }
+        GameChange change = new GameChange(kind, this, entityName, now);
+        for (GameChangeListener listener : listeners) {
+            listener.onChange(change);
+        }
     }
 }
 
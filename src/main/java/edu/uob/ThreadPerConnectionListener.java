@@ -0,0 +1,203 @@
+package edu.uob;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Method;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/* This class accepts connections on a ServerSocket and gives every connection its own thread, so a slow or
+ idle client only ever blocks itself. The connection threads never touch the game state: every command goes
+ through the GameStateExecutor, which runs them one at a time on the game-state thread and answers straight
+ away with a busy response when its bounded queue is full. Like the selector
+ listener, each connection is a session speaking either the line protocol or the FramedProtocol.
+
+ The number of sessions open at once is bounded in the same way. A connection arriving while maxConnections
+ sessions are already open is answered with SERVER_BUSY and closed straight away, so on a JVM without virtual
+ threads the server never holds more than maxConnections platform threads for its clients */
+
+public class ThreadPerConnectionListener {
+
+    private static final char END_OF_TRANSMISSION = 4;
+    private static final int FRAME_BUFFER_SIZE = 4096;
+    public static final int DEFAULT_MAX_CONNECTIONS = 1024;
+
+    private final CommandExecutor gameStateExecutor;
+    private final GameLog log;
+    private final Semaphore openSessions;
+
+    public ThreadPerConnectionListener(GameServer server) {
+        this(server, GameStateExecutor.DEFAULT_QUEUE_DEPTH);
+    }
+
+    public ThreadPerConnectionListener(GameServer server, int queueDepth) {
+        this(server, queueDepth, 1);
+    }
+
+    public ThreadPerConnectionListener(GameServer server, int queueDepth, int workerThreads) {
+        this(server, new GameStateExecutor(server, queueDepth, workerThreads));
+    }
+
+    public ThreadPerConnectionListener(GameServer server, CommandExecutor gameStateExecutor) {
+        this(server, gameStateExecutor, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    public ThreadPerConnectionListener(GameServer server, CommandExecutor gameStateExecutor, int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("There must be room for at least one connection");
+        }
+        this.gameStateExecutor = gameStateExecutor;
+        this.log = server.getLog();
+        this.openSessions = new Semaphore(maxConnections);
+    }
+
+    /* this method accepts connections until the current thread is interrupted*/
+    public void listenOn(int portNumber) throws IOException {
+        ExecutorService connectionThreads = newConnectionExecutor();
+        log.start();
+        try (ServerSocket serverSocket = new ServerSocket(portNumber)) {
+            log.info("Server listening on port " + portNumber + " (thread per connection)");
+            while (!Thread.interrupted()) {
+                Socket socket = serverSocket.accept();
+                if (!openSessions.tryAcquire()) {
+                    turnAway(socket);
+                    continue;
+                }
+                try {
+                    connectionThreads.execute(() -> {
+                        try {
+                            handleConnection(socket);
+                        }
+                        finally {
+                            openSessions.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    openSessions.release();
+                    turnAway(socket);
+                }
+            }
+        }
+        finally {
+            connectionThreads.shutdownNow();
+            gameStateExecutor.shutdown();
+            log.info("Admission queue: " + gameStateExecutor.getMetrics());
+            log.stop();
+        }
+    }
+
+    /* answers a connection there is no room for with the busy response, on the accepting thread, and closes it*/
+    private void turnAway(Socket socket) {
+        log.info("Connection turned away: too many sessions are open");
+        try (socket) {
+            OutputStream output = socket.getOutputStream();
+            output.write((GameStateExecutor.SERVER_BUSY + "\n" + END_OF_TRANSMISSION + "\n").getBytes(StandardCharsets.UTF_8));
+            output.flush();
+        } catch (IOException e) {
+            log.info("Connection turned away: " + e.getMessage());
+        }
+    }
+
+    /* serves the connection until the client closes it. The first byte decides whether the client speaks the
+    * line protocol or the framed protocol*/
+    private void handleConnection(Socket socket) {
+        long connectionId = log.nextConnectionId();
+        try (socket;
+        BufferedInputStream input = new BufferedInputStream(socket.getInputStream());
+        OutputStream output = socket.getOutputStream()) {
+            log.connectionOpened(connectionId);
+            input.mark(1);
+            int firstByte = input.read();
+            if (firstByte == -1) {
+                return;
+            }
+            if ((byte) firstByte == FramedProtocol.HANDSHAKE) {
+                serveFrames(connectionId, input, output);
+            }
+            else {
+                input.reset();
+                serveLines(connectionId, input, output);
+            }
+        } catch (IOException e) {
+            log.info("Connection " + connectionId + " closed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            log.connectionClosed(connectionId);
+        }
+    }
+
+    /* reads command lines until the client closes the connection. Each command waits for the game-state
+    * thread to execute it and gets its own END_OF_TRANSMISSION terminated response. When a client pipelines
+    * several commands, the responses are only flushed once no more input is buffered, so a batch goes back in
+    * as few writes as possible*/
+    private void serveLines(long connectionId, InputStream input, OutputStream output) throws IOException, InterruptedException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        String incomingCommand;
+        while ((incomingCommand = reader.readLine()) != null) {
+            long receivedAt = System.nanoTime();
+            String result = gameStateExecutor.execute(incomingCommand);
+            log.command(connectionId, incomingCommand, System.nanoTime() - receivedAt);
+            writer.write(result);
+            writer.write("\n" + END_OF_TRANSMISSION + "\n");
+            if (!reader.ready()) {
+                writer.flush();
+            }
+        }
+    }
+
+    /* answers the handshake and then reads command frames until the client closes the connection. Responses
+    * are encoded straight into a reusable buffer which is written out in one go once no more input is waiting*/
+    private void serveFrames(long connectionId, InputStream input, OutputStream output) throws IOException, InterruptedException {
+        output.write(FramedProtocol.HANDSHAKE);
+        output.flush();
+        ByteBuffer readBuffer = ByteBuffer.allocate(FRAME_BUFFER_SIZE).flip();
+        ByteBuffer writeBuffer = ByteBuffer.allocate(FRAME_BUFFER_SIZE);
+        while ((readBuffer = FramedProtocol.readFrame(input, readBuffer)) != null) {
+            if (FramedProtocol.opcode(readBuffer) != FramedProtocol.COMMAND) {
+                throw new IOException("Unexpected frame opcode " + FramedProtocol.opcode(readBuffer));
+            }
+            String incomingCommand = FramedProtocol.takePayload(readBuffer);
+            long receivedAt = System.nanoTime();
+            String result = gameStateExecutor.execute(incomingCommand);
+            log.command(connectionId, incomingCommand, System.nanoTime() - receivedAt);
+            writeBuffer = FramedProtocol.appendFrame(writeBuffer, FramedProtocol.RESPONSE, result);
+            if (!readBuffer.hasRemaining() && input.available() == 0) {
+                output.write(writeBuffer.array(), 0, writeBuffer.position());
+                output.flush();
+                writeBuffer.clear();
+            }
+        }
+    }
+
+    /* Virtual threads are used when the running JVM has them (Java 21 and later), so thousands of mostly idle
+    * connections don't each hold a platform thread. The project still compiles for Java 17, so the factory is
+    * looked up reflectively and a cached pool of daemon threads is used when it is missing. The listener never
+    * has more than maxConnections sessions open, which bounds that pool*/
+    static ExecutorService newConnectionExecutor() {
+        try {
+            Method virtualThreadExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtualThreadExecutor.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package edu.uob;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/* This class finds every action trigger inside a command in a single pass, however many triggers there are.
+ It is an Aho-Corasick automaton built once over all the trigger keyphrases (multi-word ones included) when
+ the actions file has been loaded.
+
+ A trigger matches wherever it appears in the command as a substring, exactly like command.contains(trigger).
+ When several triggers match, the one given first when the matcher was built wins, which is the order
+ GameEngine used to try the triggers one by one */
+
+public final class TriggerMatcher {
+
+    private final String[] triggers;
+    /* the trie edges out of every node, sorted by character so they can be binary searched*/
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] failure;
+    /* the trigger which ends at each node, or -1*/
+    private final int[] output;
+    /* the nearest node along the failure links which has an output, or -1*/
+    private final int[] outputLink;
+    /* an empty trigger is in every command*/
+    private final int emptyTrigger;
+
+    public TriggerMatcher(Collection<String> triggerPhrases) {
+        this.triggers = triggerPhrases.toArray(new String[0]);
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        trie.add(new HashMap<>());
+        ends.add(-1);
+        int empty = -1;
+        for (int id = 0; id < triggers.length; id++) {
+            if (triggers[id].isEmpty()) {
+                empty = empty < 0 ? id : empty;
+                continue;
+            }
+            int node = 0;
+            for (int i = 0; i < triggers[id].length(); i++) {
+                Integer next = trie.get(node).get(triggers[id].charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new HashMap<>());
+                    ends.add(-1);
+                    trie.get(node).put(triggers[id].charAt(i), next);
+                }
+                node = next;
+            }
+            if (ends.get(node) < 0) {
+                ends.set(node, id);
+            }
+        }
+        this.emptyTrigger = empty;
+        int nodes = trie.size();
+        this.edgeChars = new char[nodes][];
+        this.edgeTargets = new int[nodes][];
+        this.output = new int[nodes];
+        for (int node = 0; node < nodes; node++) {
+            Character[] keys = trie.get(node).keySet().toArray(new Character[0]);
+            Arrays.sort(keys);
+            edgeChars[node] = new char[keys.length];
+            edgeTargets[node] = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                edgeChars[node][i] = keys[i];
+                edgeTargets[node][i] = trie.get(node).get(keys[i]);
+            }
+            output[node] = ends.get(node);
+        }
+        this.failure = new int[nodes];
+        this.outputLink = new int[nodes];
+        buildFailureLinks();
+    }
+
+    /* breadth first, so a node's failure link is always worked out after the links of shorter prefixes*/
+    private void buildFailureLinks() {
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        outputLink[0] = -1;
+        for (int child : edgeTargets[0]) {
+            failure[child] = 0;
+            outputLink[child] = -1;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int i = 0; i < edgeChars[node].length; i++) {
+                char next = edgeChars[node][i];
+                int child = edgeTargets[node][i];
+                int fallback = failure[node];
+                while (fallback != 0 && step(fallback, next) < 0) {
+                    fallback = failure[fallback];
+                }
+                int target = step(fallback, next);
+                failure[child] = target >= 0 ? target : 0;
+                outputLink[child] = output[failure[child]] >= 0 ? failure[child] : outputLink[failure[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /* follows the trie edge for the character, or returns -1 if there is none*/
+    private int step(int node, char next) {
+        int index = Arrays.binarySearch(edgeChars[node], next);
+        return index >= 0 ? edgeTargets[node][index] : -1;
+    }
+
+    /* returns every place a trigger appears in the text, in the order they end*/
+    public List<Match> findAll(String text) {
+        List<Match> matches = new ArrayList<>();
+        if (emptyTrigger >= 0) {
+            matches.add(new Match(triggers[emptyTrigger], 0));
+        }
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            node = advance(node, text.charAt(i));
+            for (int found = output[node] >= 0 ? node : outputLink[node]; found >= 0; found = outputLink[found]) {
+                String trigger = triggers[output[found]];
+                matches.add(new Match(trigger, i + 1 - trigger.length()));
+            }
+        }
+        return matches;
+    }
+
+    /* returns the trigger to use for the command, or null if it has none. Of all the triggers in the command this
+    * is the one given first when the matcher was built*/
+    public String findTrigger(String text) {
+        if (emptyTrigger >= 0) {
+            return triggers[emptyTrigger];
+        }
+        int best = -1;
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            node = advance(node, text.charAt(i));
+            for (int found = output[node] >= 0 ? node : outputLink[node]; found >= 0; found = outputLink[found]) {
+                if (best < 0 || output[found] < best) {
+                    best = output[found];
+                }
+            }
+        }
+        return best < 0 ? null : triggers[best];
+    }
+
+    private int advance(int node, char next) {
+        int target = step(node, next);
+        while (target < 0 && node != 0) {
+            node = failure[node];
+            target = step(node, next);
+        }
+        return target < 0 ? 0 : target;
+    }
+
+    /* one trigger found in a command, and where it starts*/
+    public static final class Match {
+        private final String trigger;
+        private final int position;
+
+        private Match(String trigger, int position) {
+            this.trigger = trigger;
+            this.position = position;
+        }
+
+        public String getTrigger() {
+            return trigger;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActionIndexTest {
+
+    private static GameAction action(String trigger, List<String> subjects, EntitySymbols symbols) {
+        GameAction action = new GameAction(List.of(trigger), subjects, List.of(), List.of(), trigger);
+        action.resolveSymbols(symbols);
+        return action;
+    }
+
+    @Test
+    void testOnlyActionsWithASubjectInTheCommandAreCandidates() {
+        EntitySymbols symbols = new EntitySymbols();
+        for (String name : List.of("trapdoor", "key", "chest", "box", "potion")) {
+            symbols.intern(name);
+        }
+        GameAction trapdoor = action("open", List.of("trapdoor", "key"), symbols);
+        GameAction chest = action("open", List.of("chest"), symbols);
+        GameAction box = action("open", List.of("box", "key"), symbols);
+        LinkedHashSet<GameAction> openActions = new LinkedHashSet<>(List.of(trapdoor, chest, box));
+        HashMap<String, Set<GameAction>> actionsMap = new HashMap<>();
+        actionsMap.put("open", openActions);
+        ActionIndex index = new ActionIndex(actionsMap);
+
+        assertEquals(3, index.size());
+        assertSame(chest, index.getAction(chest.getId()));
+        assertEquals(List.of(chest), index.actionsWithSubjectIn("open", CommandTokens.parse("simon: open chest"), symbols));
+        /* both actions using the key come back, in the order of the trigger's set*/
+        assertEquals(List.of(trapdoor, box), index.actionsWithSubjectIn("open", CommandTokens.parse("simon: open with key"), symbols));
+        assertEquals(List.of(trapdoor, box), index.actionsWithSubjectIn("open", CommandTokens.parse("simon: open box key trapdoor"), symbols));
+        assertTrue(index.actionsWithSubjectIn("open", CommandTokens.parse("simon: open potion"), symbols).isEmpty());
+        assertTrue(index.actionsWithSubjectIn("drink", CommandTokens.parse("simon: drink chest"), symbols).isEmpty());
+    }
+
+    @Test
+    void testAnActionUnderSeveralTriggersKeepsOneId() {
+        EntitySymbols symbols = new EntitySymbols();
+        symbols.intern("tree");
+        GameAction cut = action("cut", List.of("tree"), symbols);
+        HashMap<String, Set<GameAction>> actionsMap = new HashMap<>();
+        actionsMap.put("cut", Set.of(cut));
+        actionsMap.put("chop", Set.of(cut));
+        ActionIndex index = new ActionIndex(actionsMap);
+
+        assertEquals(1, index.size());
+        assertEquals(0, cut.getId());
+        assertEquals(List.of(cut), index.actionsWithSubjectIn("chop", CommandTokens.parse("simon: chop tree"), symbols));
+    }
+}
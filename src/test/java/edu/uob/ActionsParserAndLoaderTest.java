@@ -0,0 +1,78 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActionsParserAndLoaderTest {
+
+    /* what the loader used to do: read the file into a DOM and describe every action under every trigger*/
+    private static Set<String> readWithDom(File file) throws Exception {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file);
+        NodeList actions = document.getDocumentElement().getElementsByTagName("action");
+        Set<String> described = new HashSet<>();
+        for (int i = 0; i < actions.getLength(); i++) {
+            Element action = (Element) actions.item(i);
+            List<String> triggers = texts(action, "triggers", "keyphrase");
+            String description = texts(action, "subjects", "entity") + "|" + texts(action, "consumed", "entity") + "|"
+                    + texts(action, "produced", "entity") + "|"
+                    + action.getElementsByTagName("narration").item(0).getTextContent();
+            for (String trigger : triggers) {
+                described.add(trigger + "->" + description);
+            }
+        }
+        return described;
+    }
+
+    private static List<String> texts(Element action, String section, String item) {
+        List<String> texts = new ArrayList<>();
+        NodeList nodes = ((Element) action.getElementsByTagName(section).item(0)).getElementsByTagName(item);
+        for (int i = 0; i < nodes.getLength(); i++) {
+            texts.add(nodes.item(i).getTextContent());
+        }
+        return texts;
+    }
+
+    private static Set<String> readWithLoader(File file) throws Exception {
+        Set<String> described = new HashSet<>();
+        ActionsParserAndLoader loader = new ActionsParserAndLoader(file);
+        loader.getActionsMap().forEach((trigger, actions) -> {
+            for (GameAction action : actions) {
+                described.add(trigger + "->" + action.getSubjects() + "|" + action.getConsumedEntities() + "|"
+                        + action.getProducedEntities() + "|" + action.getNarration());
+            }
+        });
+        return described;
+    }
+
+    @Test
+    void testStreamingLoaderReadsWhatTheDomDid() throws Exception {
+        for (String name : new String[] {"basic-actions.xml", "extended-actions.xml", "student-actions.xml"}) {
+            File file = new File("config" + File.separator + name);
+            assertEquals(readWithDom(file), readWithLoader(file), name);
+        }
+    }
+
+    @Test
+    void testBrokenFilesAreReportedAsSaxExceptions() throws IOException {
+        File broken = File.createTempFile("broken-actions", ".xml");
+        broken.deleteOnExit();
+        Files.writeString(broken.toPath(), "<actions><action><triggers><keyphrase>open</keyphrase></triggers>");
+        assertThrows(SAXException.class, () -> new ActionsParserAndLoader(broken));
+        Files.writeString(broken.toPath(), "<actions><action><triggers><keyphrase>open</keyphrase></triggers></action></actions>");
+        assertThrows(SAXException.class, () -> new ActionsParserAndLoader(broken));
+    }
+}
@@ -0,0 +1,36 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BasicCommandHandlerTest {
+
+    /* one handler is shared by every player, so nothing from one command may leak into the next*/
+    @Test
+    void testOneHandlerServesEveryPlayer() throws Exception {
+        GameMap map = new GameServer(new File("config" + File.separator + "basic-entities.dot"),
+                new File("config" + File.separator + "basic-actions.xml")).getGameMap();
+        BasicCommandHandler handler = new BasicCommandHandler(map);
+        StagLocation cabin = map.getFirstLocation();
+        StagPlayer simon = new StagPlayer("simon", "player", 3);
+        StagPlayer sion = new StagPlayer("sion", "player", 3);
+        for (StagPlayer player : new StagPlayer[] {simon, sion}) {
+            player.setLocation(cabin);
+            cabin.addPlayer(player.getName(), player);
+        }
+
+        assertTrue(handler.isBasicCommand("goto"));
+        assertFalse(handler.isBasicCommand("open"));
+        assertEquals("You picked up a potion and placed it into your player's inventory",
+                handler.handleCommand(simon, "simon: get potion"));
+        assertEquals("Invalid command- You cannot pick up this/these items", handler.handleCommand(sion, "sion: get potion"));
+        assertTrue(handler.handleCommand(simon, "simon: inv").contains("potion"));
+        assertFalse(handler.handleCommand(sion, "sion: inv").contains("potion"));
+        assertEquals("You go into a forest", handler.handleCommand(sion, "sion: goto forest"));
+        assertSame(map.getLocation("forest"), sion.getLocation());
+        assertEquals("Invalid command- Unknown command.", handler.handleCommand(simon, "simon: dance"));
+    }
+}
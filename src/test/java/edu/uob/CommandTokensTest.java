@@ -0,0 +1,61 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandTokensTest {
+
+    /* the username as GameEngine used to find it, by splitting the whole command*/
+    private static String splitUsername(String command) {
+        String[] parts = command.split(": | ");
+        return parts.length == 0 ? "" : parts[0];
+    }
+
+    private static void assertSameAsSplit(String command) {
+        CommandTokens parsed = CommandTokens.parse(command);
+        assertArrayEquals(command.split(" "), parsed.getTokens(), "tokens of \"" + command + "\"");
+        assertArrayEquals(command.split("\\s+|:\\s*"), parsed.getWords(), "words of \"" + command + "\"");
+        assertEquals(splitUsername(command), parsed.getUsername(), "username of \"" + command + "\"");
+        for (int i = 0; i < parsed.getTokenCount(); i++) {
+            assertTrue(command.startsWith(parsed.getToken(i), parsed.getOffset(i)), "offset of token " + i);
+        }
+    }
+
+    @Test
+    void testUsualCommands() {
+        CommandTokens parsed = CommandTokens.parse("simon: get axe");
+        assertEquals("simon", parsed.getUsername());
+        assertArrayEquals(new String[] {"simon:", "get", "axe"}, parsed.getTokens());
+        assertArrayEquals(new String[] {"simon", "get", "axe"}, parsed.getWords());
+        assertEquals(7, parsed.getOffset(1));
+        assertTrue(parsed.containsToken("get"));
+        assertFalse(parsed.containsToken("simon"));
+    }
+
+    @Test
+    void testSameAsStringSplitForAwkwardCommands() {
+        String[] commands = {"", " ", "  ", "look", "simon:look", "simon:  look", "simon : look", ": look",
+                "simon: ", "simon:", "simon:: get axe", " simon: look", "simon: look ", "simon:\tget  axe",
+                "a\tb c", "simon: open  trapdoor with key", "::", ": :", "\t", "x y\r\n"};
+        for (String command : commands) {
+            assertSameAsSplit(command);
+        }
+    }
+
+    @Test
+    void testSameAsStringSplitForRandomCommands() {
+        Random random = new Random(42);
+        char[] alphabet = {'a', 'b', ' ', ' ', ':', '\t'};
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder command = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                command.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            assertSameAsSplit(command.toString());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package edu.uob;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/* These tests drive the engine in its concurrent mode from several threads at once and then check that the
+ game state is still consistent: every player is in exactly one location, and an artefact fought over by
+ everyone ends up in exactly one place */
+
+class ConcurrentEngineTests {
+
+    private static final String[] PLAYERS = {"alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel"};
+    private static final int ROUNDS = 500;
+
+    private GameServer server;
+
+    @BeforeEach
+    void setup() throws Exception {
+        File entitiesFile = Paths.get("config" + File.separator + "basic-entities.dot").toAbsolutePath().toFile();
+        File actionsFile = Paths.get("config" + File.separator + "basic-actions.xml").toAbsolutePath().toFile();
+        server = new GameServer(entitiesFile, actionsFile);
+        server.setConcurrentCommands(true);
+    }
+
+    /* runs the task once for every player, each on its own thread, and returns what each one returned*/
+    private List<Integer> runForEveryPlayer(PlayerTask task) throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(PLAYERS.length);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (String player : PLAYERS) {
+                results.add(threads.submit(() -> task.run(player)));
+            }
+            List<Integer> counts = new ArrayList<>();
+            for (Future<Integer> result : results) {
+                counts.add(result.get(30, TimeUnit.SECONDS));
+            }
+            return counts;
+        }
+        finally {
+            threads.shutdownNow();
+        }
+    }
+
+    private static int occurrences(String text, String part) {
+        int count = 0;
+        for (int index = text.indexOf(part); index >= 0; index = text.indexOf(part, index + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    void testPlayersMovingAtTheSameTimeEndUpInOneLocation() throws Exception {
+        runForEveryPlayer(player -> {
+            for (int i = 0; i < ROUNDS; i++) {
+                server.handleCommand(player + ": goto forest");
+                server.handleCommand(player + ": look");
+                server.handleCommand(player + ": goto cabin");
+            }
+            return 0;
+        });
+        String cabin = server.handleCommand("observer: look");
+        server.handleCommand("observer: goto forest");
+        String forest = server.handleCommand("observer: look");
+        for (String player : PLAYERS) {
+            assertEquals(1, occurrences(cabin, player + ": "), player + " should be in the cabin exactly once");
+            assertEquals(0, occurrences(forest, player + ": "), player + " should no longer be in the forest");
+        }
+    }
+
+    @Test
+    void testArtefactFoughtOverIsNeverDuplicatedOrLost() throws Exception {
+        List<Integer> gets = runForEveryPlayer(player -> {
+            int picked = 0;
+            for (int i = 0; i < ROUNDS; i++) {
+                if (server.handleCommand(player + ": get potion").startsWith("You picked up")) {
+                    picked++;
+                }
+                server.handleCommand(player + ": drop potion");
+            }
+            return picked;
+        });
+        assertTrue(gets.stream().mapToInt(Integer::intValue).sum() > 0, "Somebody should have picked up the potion");
+        String look = server.handleCommand("observer: look");
+        assertEquals(1, occurrences(look, "potion: "), "The potion should be back in the cabin exactly once");
+        for (String player : PLAYERS) {
+            assertFalse(server.handleCommand(player + ": inv").contains("potion"), player + " should not still hold the potion");
+        }
+    }
+
+    @Test
+    void testFirstCommandsFromTheSamePlayerCreateThemOnce() throws Exception {
+        runForEveryPlayer(player -> {
+            server.handleCommand("newcomer: look");
+            return 0;
+        });
+        String look = server.handleCommand("observer: look");
+        assertEquals(1, occurrences(look, "newcomer: "), "The new player should only have been added once");
+    }
+
+    private interface PlayerTask {
+        int run(String player) throws Exception;
+    }
+}
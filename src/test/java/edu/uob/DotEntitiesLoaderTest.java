@@ -0,0 +1,115 @@
+package edu.uob;
+
+import com.alexmerz.graphviz.ParseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DotEntitiesLoaderTest {
+
+    /* everything GameMap knows about a location, in an order which does not depend on hashing*/
+    private static List<String> describe(GameMap map) {
+        List<String> described = new ArrayList<>();
+        for (StagLocation location : map.values()) {
+            described.add(location.getName() + ": " + location.getDescription());
+            described.add("characters " + descriptions(location.getCharacters()));
+            described.add("artefacts " + descriptions(location.getArtefacts()));
+            described.add("furniture " + descriptions(location.getFurniture()));
+            described.add("exits " + new TreeMap<>(location.getExits()).keySet());
+        }
+        described.add("entities " + new TreeSet<>(map.getEntities()));
+        return described;
+    }
+
+    private static TreeMap<String, String> descriptions(Map<String, ? extends GameEntity> entities) {
+        TreeMap<String, String> sorted = new TreeMap<>();
+        entities.forEach((name, entity) -> sorted.put(name, entity.getDescription()));
+        return sorted;
+    }
+
+    @Test
+    void testLoadsTheSameMapAsTheGraphvizParser() throws Exception {
+        for (String name : new String[] {"basic-entities.dot", "extended-entities.dot", "student-entities.dot"}) {
+            File file = new File("config" + File.separator + name);
+            EntitiesParserAndLoader parsed = new EntitiesParserAndLoader(file);
+            GameMap fromGraph = new GameMap(parsed.getLocations(), parsed.getPaths());
+            GameMap streamed = new GameMap(new DotEntitiesLoader(file).getLocations());
+            assertEquals(describe(fromGraph), describe(streamed), name);
+            StagLocation cabin = streamed.getFirstLocation();
+            assertTrue(cabin.containsEntityExcludingExits(streamed.getSymbols().idOf("potion")));
+            assertTrue(cabin.containsEntity(streamed.getSymbols().idOf("forest")));
+        }
+    }
+
+    /* each entity put in a location while loading only moves its version on, and the snapshot is built once
+    * when the location is first looked at*/
+    @Test
+    void testLoadingDoesNotBuildASnapshotPerEntity() throws Exception {
+        File file = new File("config" + File.separator + "extended-entities.dot");
+        GameMap map = new GameMap(new DotEntitiesLoader(file).getLocations());
+        for (StagLocation location : map.values()) {
+            assertEquals(0, location.getSnapshotsBuilt(), location.getName());
+        }
+        StagLocation cabin = map.getFirstLocation();
+        assertTrue(cabin.getVersion() > 1);
+        LocationSnapshot snapshot = cabin.getSnapshot();
+        assertSame(snapshot, cabin.getSnapshot());
+        assertEquals(cabin.getVersion(), snapshot.getVersion());
+        assertEquals(1, cabin.getSnapshotsBuilt());
+
+        cabin.addPlayer("simon", new StagPlayer("simon", "player", 3));
+        cabin.removeArtefact("potion");
+        cabin.removePlayer("simon");
+        assertEquals(1, cabin.getSnapshotsBuilt());
+        assertFalse(cabin.getSnapshot().getArtefacts().contains("potion"));
+        assertEquals(2, cabin.getSnapshotsBuilt());
+    }
+
+    @Test
+    void testReadsTheRestOfDotAndReportsMistakes() throws Exception {
+        File dot = File.createTempFile("entities", ".dot");
+        dot.deleteOnExit();
+        Files.writeString(dot.toPath(), String.join("\n",
+                "digraph layout {",
+                "  # a comment",
+                "  graph [ranksep=\"1\" nodesep=\"1\"]; // another",
+                "  subgraph locations {",
+                "    subgraph cluster001 {",
+                "      subgraph artefacts { \"Gold Coin\" [shape = \"diamond\", description = \"A \\\"shiny\\\" coin\"] }",
+                "      Hall [description = \"A great hall\"]",
+                "      subgraph cluster { ghost [description = \"not an entity\"] }",
+                "    }",
+                "    subgraph cluster002 { yard [description = \"A yard\"]; }",
+                "  }",
+                "  subgraph paths { Hall -> yard -> hall; }",
+                "}"));
+        List<StagLocation> locations = new DotEntitiesLoader(dot).getLocations();
+        assertEquals(2, locations.size());
+        StagLocation hall = locations.get(0);
+        assertEquals("hall", hall.getName());
+        assertEquals("A \"shiny\" coin", hall.getArtefacts().get("gold coin").getDescription());
+        assertEquals(1, hall.getArtefacts().size() + hall.getCharacters().size() + hall.getFurniture().size());
+        assertSame(locations.get(1), hall.getExit("yard"));
+        assertSame(hall, locations.get(1).getExit("hall"));
+
+        Files.writeString(dot.toPath(), "digraph layout {\n subgraph locations {\n subgraph c { a [description = \"x\"] }\n");
+        ParseException unclosed = assertThrows(ParseException.class, () -> new DotEntitiesLoader(dot));
+        assertTrue(unclosed.getMessage().startsWith("Line 4"), unclosed.getMessage());
+        Files.writeString(dot.toPath(), "digraph { subgraph l { subgraph c { a } } subgraph p { a -> nowhere } }");
+        assertThrows(ParseException.class, () -> new DotEntitiesLoader(dot));
+    }
+
+    @Test
+    void testMissingFilesAreStillFileNotFound() {
+        assertThrows(FileNotFoundException.class, () -> new DotEntitiesLoader(new File("config" + File.separator + "missing.dot")));
+    }
+}
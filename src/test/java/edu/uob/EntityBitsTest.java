@@ -0,0 +1,71 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityBitsTest {
+
+    @Test
+    void testSetClearAndGrow() {
+        EntityBits bits = new EntityBits();
+        assertTrue(bits.isEmpty());
+        bits.set(3);
+        bits.set(200);
+        bits.set(EntitySymbols.NO_ID);
+        assertTrue(bits.get(3));
+        assertTrue(bits.get(200));
+        assertFalse(bits.get(64));
+        assertFalse(bits.get(EntitySymbols.NO_ID));
+        bits.clear(200);
+        bits.clear(5000);
+        assertFalse(bits.get(200));
+        bits.clearAll();
+        assertTrue(bits.isEmpty());
+    }
+
+    @Test
+    void testSubsetAllowsTheExtraId() {
+        EntityBits subjects = EntityBits.of(new int[] {1, 70, 130});
+        EntityBits inventory = EntityBits.of(new int[] {1});
+        EntityBits location = new EntityBits(8);
+        location.set(70);
+        assertFalse(subjects.isSubsetOf(inventory, location, EntitySymbols.NO_ID));
+        assertTrue(subjects.isSubsetOf(inventory, location, 130));
+        assertTrue(new EntityBits().isSubsetOf(new EntityBits(), new EntityBits(), EntitySymbols.NO_ID));
+    }
+
+    /* the subset test gives the same answer as checking each subject one at a time*/
+    @Test
+    void testSubsetMatchesCheckingEachId() {
+        Random random = new Random(17);
+        for (int round = 0; round < 500; round++) {
+            BitSet subjects = new BitSet();
+            BitSet first = new BitSet();
+            BitSet second = new BitSet();
+            for (int id = 0; id < 150; id++) {
+                if (random.nextInt(40) == 0) {
+                    subjects.set(id);
+                }
+                if (random.nextInt(3) == 0) {
+                    first.set(id);
+                }
+                if (random.nextInt(3) == 0) {
+                    second.set(id);
+                }
+            }
+            int extra = random.nextInt(150);
+            boolean expected = true;
+            for (int id = subjects.nextSetBit(0); id >= 0; id = subjects.nextSetBit(id + 1)) {
+                if (!first.get(id) && !second.get(id) && id != extra) {
+                    expected = false;
+                }
+            }
+            assertEquals(expected, EntityBits.of(subjects.stream().toArray())
+                    .isSubsetOf(EntityBits.of(first.stream().toArray()), EntityBits.of(second.stream().toArray()), extra));
+        }
+    }
+}
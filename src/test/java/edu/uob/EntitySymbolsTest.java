@@ -0,0 +1,48 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntitySymbolsTest {
+
+    @Test
+    void testInternGivesDenseStableIds() {
+        EntitySymbols symbols = new EntitySymbols();
+        assertEquals(0, symbols.intern("cabin"));
+        assertEquals(1, symbols.intern("axe"));
+        assertEquals(0, symbols.intern("cabin"));
+        assertEquals(2, symbols.size());
+        assertEquals("axe", symbols.nameOf(1));
+        assertEquals(EntitySymbols.NO_ID, symbols.idOf("health"));
+        assertArrayEquals(new int[] {1, EntitySymbols.NO_ID}, symbols.idsOf(List.of("axe", "health")));
+    }
+
+    @Test
+    void testLoadedEntitiesCarryTheirIds() throws Exception {
+        EntitiesParserAndLoader entities = new EntitiesParserAndLoader(new File("config" + File.separator + "basic-entities.dot"));
+        GameMap map = new GameMap(entities.getLocations(), entities.getPaths());
+        EntitySymbols symbols = map.getSymbols();
+        StagLocation cabin = map.getLocation("cabin");
+        StagLocation forest = map.getLocation("forest");
+        assertEquals(symbols.idOf("cabin"), cabin.getId());
+        assertEquals(symbols.idOf("potion"), cabin.getArtefacts().get("potion").getId());
+        assertTrue(cabin.containsEntityExcludingExits(symbols.idOf("potion")));
+        assertTrue(cabin.containsEntity(forest.getId()));
+        assertFalse(cabin.containsEntityExcludingExits(forest.getId()));
+        assertFalse(cabin.containsEntity(EntitySymbols.NO_ID));
+
+        StagPlayer player = new StagPlayer("simon", "player", 3);
+        player.setLocation(cabin);
+        player.addToInventory(cabin.getArtefacts().get("potion"));
+        cabin.removeArtefact("potion");
+        assertFalse(cabin.containsEntityExcludingExits(symbols.idOf("potion")));
+        assertTrue(player.hasArtefact(symbols.idOf("potion")));
+        player.dropInventoryInLocation();
+        assertFalse(player.hasArtefact(symbols.idOf("potion")));
+        assertTrue(cabin.containsEntityExcludingExits(symbols.idOf("potion")));
+    }
+}
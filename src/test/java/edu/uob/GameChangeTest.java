@@ -0,0 +1,96 @@
+package edu.uob;
+
+import com.alexmerz.graphviz.Parser;
+import com.alexmerz.graphviz.objects.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameChangeTest {
+
+    @Test
+    void testLocationChangesAreVersionedAndHeard() {
+        StagLocation cabin = new StagLocation("cabin", "a log cabin");
+        List<GameChange> heard = new ArrayList<>();
+        cabin.addListener(heard::add);
+        long start = cabin.getVersion();
+
+        cabin.addArtefact("potion", new StagArtefact("potion", "magic potion"));
+        cabin.addExit("forest", new StagLocation("forest", "a dark forest"));
+        cabin.removeEntity("potion");
+        cabin.removeEntity("forest");
+
+        assertEquals(4, heard.size());
+        assertEquals(GameChange.Kind.ENTITY_ADDED, heard.get(0).getKind());
+        assertEquals("potion", heard.get(0).getEntityName());
+        assertSame(cabin, heard.get(0).getSource());
+        assertEquals(start + 1, heard.get(0).getVersion());
+        assertEquals(GameChange.Kind.EXIT_ADDED, heard.get(1).getKind());
+        assertEquals(GameChange.Kind.ENTITY_REMOVED, heard.get(2).getKind());
+        assertEquals(GameChange.Kind.EXIT_REMOVED, heard.get(3).getKind());
+        assertEquals(heard.get(3).getVersion(), cabin.getVersion());
+    }
+
+    /* removing something which is not there changes nothing, so the version stays where it is*/
+    @Test
+    void testNoOpRemovesLeaveTheVersionAlone() {
+        StagLocation cabin = new StagLocation("cabin", "a log cabin");
+        cabin.addArtefact("potion", new StagArtefact("potion", "magic potion"));
+        List<GameChange> heard = new ArrayList<>();
+        cabin.addListener(heard::add);
+        long version = cabin.getVersion();
+        LocationSnapshot snapshot = cabin.getSnapshot();
+
+        cabin.removePlayer("simon");
+        cabin.removeEntity("nothing");
+        cabin.removeArtefact("nothing");
+        cabin.addArtefacts(new HashMap<>());
+
+        assertEquals(version, cabin.getVersion());
+        assertSame(snapshot, cabin.getSnapshot());
+        assertTrue(heard.isEmpty());
+    }
+
+    @Test
+    void testPlayerChangesAreVersionedAndHeard() {
+        StagLocation cabin = new StagLocation("cabin", "a log cabin");
+        StagPlayer player = new StagPlayer("simon", "player", 3);
+        List<GameChange.Kind> heard = new ArrayList<>();
+        player.addListener(change -> heard.add(change.getKind()));
+
+        player.setLocation(cabin);
+        player.addToInventory(new StagArtefact("axe", "a sharp axe"));
+        player.setHealth(2);
+        player.dropInventoryInLocation();
+
+        assertEquals(List.of(GameChange.Kind.PLAYER_MOVED, GameChange.Kind.INVENTORY_ADDED,
+                GameChange.Kind.HEALTH_CHANGED, GameChange.Kind.INVENTORY_REMOVED), heard);
+        assertEquals(4, player.getVersion());
+    }
+
+    @Test
+    void testGameMapHearsEveryCommand() throws Exception {
+        Parser parser = new Parser();
+        parser.parse(new FileReader("config" + File.separator + "basic-entities.dot"));
+        Graph wholeDocument = parser.getGraphs().get(0);
+        GameMap map = new GameMap(wholeDocument.getSubgraphs().get(0).getSubgraphs(), wholeDocument.getSubgraphs().get(1).getEdges());
+        GameEngine engine = new GameEngine(map, new HashMap<>());
+        List<GameChange> heard = new ArrayList<>();
+        map.addListener(heard::add);
+        long before = map.getVersion();
+
+        engine.handleCommand("simon: get potion", map);
+
+        assertEquals(before + heard.size(), map.getVersion());
+        assertTrue(heard.stream().anyMatch(change -> change.getKind() == GameChange.Kind.INVENTORY_ADDED
+                && change.getEntityName().equals("potion")));
+        assertTrue(heard.stream().anyMatch(change -> change.getKind() == GameChange.Kind.ENTITY_REMOVED
+                && change.getSource() == map.getLocation("cabin")));
+    }
+}
@@ -0,0 +1,55 @@
+package edu.uob;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+class GameLogTest {
+
+    @Test
+    void testEventsAreWrittenAsKeyValueLines() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        GameLog log = new GameLog(output, 16);
+        log.start();
+        long connectionId = log.nextConnectionId();
+        log.connectionOpened(connectionId);
+        log.command(connectionId, "simon: say \"hi\"", 2500);
+        log.connectionClosed(connectionId);
+        log.stop();
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("event=connection_opened conn=1"));
+        assertTrue(lines[1].contains("event=command conn=1 latency_us=2 command=\"simon: say \\\"hi\\\"\""));
+        assertTrue(lines[2].contains("event=connection_closed conn=1"));
+    }
+
+    @Test
+    void testFullRingDropsInsteadOfBlocking() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        GameLog log = new GameLog(output, 8);
+        for (int i = 0; i < 20; i++) {
+            log.info("message " + i);
+        }
+        assertEquals(12, log.getDropped());
+        log.start();
+        log.stop();
+        String written = output.toString(StandardCharsets.UTF_8);
+        assertTrue(written.contains("message 7"));
+        assertFalse(written.contains("message 8"));
+        assertTrue(written.contains("event=log_dropped message=\"12\""));
+    }
+
+    @Test
+    void testCommandsAreSampledUnderPressure() {
+        GameLog log = new GameLog(new ByteArrayOutputStream(), 64);
+        for (int i = 0; i < 48; i++) {
+            log.info("filler");
+        }
+        for (int i = 0; i < 16; i++) {
+            log.command(1, "simon: look", 0);
+        }
+        assertEquals(14, log.getDropped());
+    }
+}
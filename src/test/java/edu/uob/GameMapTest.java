@@ -0,0 +1,60 @@
+package edu.uob;
+
+import com.alexmerz.graphviz.ParseException;
+import com.alexmerz.graphviz.Parser;
+import com.alexmerz.graphviz.objects.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameMapTest {
+
+    private static GameMap loadMap() throws FileNotFoundException, ParseException {
+        Parser parser = new Parser();
+        FileReader reader = new FileReader("config" + File.separator + "basic-entities.dot");
+        parser.parse(reader);
+        Graph wholeDocument = parser.getGraphs().get(0);
+        return new GameMap(wholeDocument.getSubgraphs().get(0).getSubgraphs(), wholeDocument.getSubgraphs().get(1).getEdges());
+    }
+
+    @Test
+    void testEntitiesAreFoundByNameWithTheirContainer() throws FileNotFoundException, ParseException {
+        GameMap map = loadMap();
+        StagLocation cabin = map.getLocation("cabin");
+        assertSame(cabin.getArtefacts().get("potion"), map.getStagArtefact("potion"));
+        assertSame(cabin, map.getContainer("potion"));
+        assertSame(map.getStoreroom(), map.getContainer("log"));
+        assertSame(map.getLocation("cellar"), map.getContainer("elf"));
+        assertNotNull(map.getStagCharacter("elf"));
+        assertNull(map.getStagCharacter("potion"));
+        assertNull(map.getEntity("nothing"));
+
+        StagPlayer player = new StagPlayer("simon", "player", 3);
+        player.addToInventory(cabin.getArtefacts().get("potion"));
+        cabin.removeArtefact("potion");
+        assertSame(player, map.getContainer("potion"));
+        /* getStagArtefact only finds artefacts lying in a location*/
+        assertNull(map.getStagArtefact("potion"));
+        assertNotNull(map.getEntity("potion"));
+    }
+
+    @Test
+    void testEntityNamesAreSharedAndMatchedInsideCommands() throws FileNotFoundException, ParseException {
+        GameMap map = loadMap();
+        assertSame(map.getEntities(), map.getEntities());
+        assertThrows(UnsupportedOperationException.class, () -> map.getEntities().add("sword"));
+        assertTrue(map.isEntity("trapdoor"));
+        assertFalse(map.isEntity("sword"));
+        for (String command : new String[] {"simon: look", "simon: look at the potion", "simon: inv forestry", "elfie: health"}) {
+            boolean contained = false;
+            for (String entity : map.getEntities()) {
+                contained |= command.contains(entity);
+            }
+            assertEquals(contained, map.mentionsEntity(command), command);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package edu.uob;
+
+import com.alexmerz.graphviz.ParseException;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.SAXException;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameServerStartupTest {
+
+    private static final File ENTITIES = new File("config" + File.separator + "extended-entities.dot");
+    private static final File ACTIONS = new File("config" + File.separator + "extended-actions.xml");
+
+    @Test
+    void testBothFilesAreLoaded() throws Exception {
+        GameServer server = new GameServer(ENTITIES, ACTIONS);
+        assertNotNull(server.getGameMap().getStoreroom());
+        assertTrue(server.handleCommand("simon: look").contains("cabin"));
+        assertTrue(server.handleCommand("simon: open trapdoor").contains("Invalid"));
+    }
+
+    /* the files are read at the same time but their problems come out of the constructor as they used to*/
+    @Test
+    void testProblemsLoadingEitherFileAreThrownAsBefore() throws Exception {
+        File brokenActions = File.createTempFile("actions", ".xml");
+        brokenActions.deleteOnExit();
+        Files.writeString(brokenActions.toPath(), "<actions><action>");
+        File brokenEntities = File.createTempFile("entities", ".dot");
+        brokenEntities.deleteOnExit();
+        Files.writeString(brokenEntities.toPath(), "digraph {");
+        File missing = new File("config" + File.separator + "missing.xml");
+
+        assertThrows(SAXException.class, () -> new GameServer(ENTITIES, brokenActions));
+        assertThrows(ParseException.class, () -> new GameServer(brokenEntities, ACTIONS));
+        assertThrows(FileNotFoundException.class, () -> new GameServer(ENTITIES, missing));
+        /* when both are broken the actions file is reported, as it was read first*/
+        assertThrows(SAXException.class, () -> new GameServer(brokenEntities, brokenActions));
+    }
+}
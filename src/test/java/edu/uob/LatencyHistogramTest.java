@@ -0,0 +1,52 @@
+package edu.uob;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10; value++) {
+            histogram.record(value);
+        }
+        assertEquals(10, histogram.getCount());
+        assertEquals(5, histogram.getPercentile(50));
+        assertEquals(10, histogram.getPercentile(100));
+        assertEquals(10, histogram.getMax());
+    }
+
+    @Test
+    void testPercentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+        long median = histogram.getPercentile(50);
+        long tail = histogram.getPercentile(99);
+        assertTrue(Math.abs(median - 50_000_000L) <= 50_000_000L / 16, "median was " + median);
+        assertTrue(Math.abs(tail - 99_000_000L) <= 99_000_000L / 16, "p99 was " + tail);
+        assertEquals(100_000_000L, histogram.getMax());
+    }
+
+    @Test
+    void testAddMergesCounts() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.record(100);
+        second.record(200);
+        second.record(300);
+        first.add(second);
+        assertEquals(3, first.getCount());
+        assertEquals(300, first.getMax());
+        assertEquals(200, first.getMean());
+    }
+}
@@ -0,0 +1,39 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadGeneratorTest {
+
+    /* "botcut" and "botkey" would be the 1892nd and 6889th names if nothing were skipped*/
+    @Test
+    void testPlayerNamesNeverContainATriggerOrEntity() throws Exception {
+        EntitiesParserAndLoader entities = new EntitiesParserAndLoader(new File("config" + File.separator + "extended-entities.dot"));
+        GameMap map = new GameMap(entities.getLocations(), entities.getPaths());
+        ActionsParserAndLoader actions = new ActionsParserAndLoader(new File("config" + File.separator + "extended-actions.xml"));
+        TriggerMatcher triggers = actions.getTriggerMatcher();
+
+        List<String> names = LoadGenerator.playerNames(10000,
+                name -> map.mentionsEntity(name) || triggers.findTrigger(name) != null);
+
+        assertEquals(10000, names.size());
+        assertEquals(10000, new HashSet<>(names).size());
+        assertFalse(names.contains("botcut"));
+        assertFalse(names.contains("botkey"));
+        for (String name : names) {
+            assertTrue(name.matches("bot[a-z]+"), name);
+            assertFalse(map.mentionsEntity(name), name);
+            assertNull(triggers.findTrigger(name), name);
+        }
+    }
+
+    @Test
+    void testNamesWhichAlwaysClashAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.playerNames(1, name -> name.contains("bo")));
+    }
+}
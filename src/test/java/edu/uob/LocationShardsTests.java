@@ -0,0 +1,113 @@
+package edu.uob;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/* These tests run the basic game on three location shards, so the cabin, the forest and the cellar each belong
+ to a different event loop, and check that players handed over between loops are never lost or duplicated */
+
+class LocationShardsTests {
+
+    private static final String[] PLAYERS = {"alpha", "bravo", "charlie", "delta", "echo", "foxtrot"};
+    private static final int ROUNDS = 300;
+
+    private LocationShards shards;
+
+    @BeforeEach
+    void setup() throws Exception {
+        File entitiesFile = Paths.get("config" + File.separator + "basic-entities.dot").toAbsolutePath().toFile();
+        File actionsFile = Paths.get("config" + File.separator + "basic-actions.xml").toAbsolutePath().toFile();
+        shards = new LocationShards(new GameServer(entitiesFile, actionsFile), GameStateExecutor.DEFAULT_QUEUE_DEPTH, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        shards.shutdown();
+    }
+
+    private static int occurrences(String text, String part) {
+        int count = 0;
+        for (int index = text.indexOf(part); index >= 0; index = text.indexOf(part, index + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    void testActionsAndGotoAcrossShards() throws Exception {
+        assertTrue(shards.execute("simon: goto forest").contains("forest"));
+        assertTrue(shards.execute("simon: get key").contains("picked up"));
+        assertTrue(shards.execute("simon: goto cabin").contains("cabin"));
+        assertTrue(shards.execute("simon: open trapdoor").contains("cellar"));
+        assertTrue(shards.execute("simon: goto cellar").contains("cellar"));
+        String look = shards.execute("simon: look");
+        assertTrue(look.contains("elf"), "Should be able to see the elf in the cellar");
+        assertFalse(shards.execute("simon: inv").contains("key"), "The key should have been consumed");
+    }
+
+    @Test
+    void testPlayersHandedBetweenShardsAreNeverLost() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(PLAYERS.length);
+        try {
+            List<Future<?>> players = new ArrayList<>();
+            for (String player : PLAYERS) {
+                players.add(threads.submit(() -> {
+                    for (int i = 0; i < ROUNDS; i++) {
+                        shards.execute(player + ": goto forest");
+                        shards.execute(player + ": look");
+                        shards.execute(player + ": goto cabin");
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> player : players) {
+                player.get(30, TimeUnit.SECONDS);
+            }
+        }
+        finally {
+            threads.shutdownNow();
+        }
+        String cabin = shards.execute("observer: look");
+        shards.execute("observer: goto forest");
+        String forest = shards.execute("observer: look");
+        for (String player : PLAYERS) {
+            assertEquals(1, occurrences(cabin, player + ": "), player + " should be in the cabin exactly once");
+            assertEquals(0, occurrences(forest, player + ": "), player + " should no longer be in the forest");
+        }
+    }
+
+    @Test
+    void testFullShardTurnsCommandsAway() throws Exception {
+        LocationShards tiny = new LocationShards(new GameServer(
+                Paths.get("config" + File.separator + "basic-entities.dot").toAbsolutePath().toFile(),
+                Paths.get("config" + File.separator + "basic-actions.xml").toAbsolutePath().toFile()), 1, 2);
+        try {
+            List<String> responses = new ArrayList<>();
+            List<CompletableFuture<String>> pending = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                pending.add(tiny.submit("simon: look"));
+            }
+            for (CompletableFuture<String> response : pending) {
+                responses.add(response.get(10, TimeUnit.SECONDS));
+            }
+            assertTrue(responses.contains(GameStateExecutor.SERVER_BUSY), "Some commands should have been turned away");
+            assertTrue(tiny.getMetrics().getAdmitted() > 0, "Some commands should have been admitted");
+        }
+        finally {
+            tiny.shutdown();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerRegistryTest {
+
+    @Test
+    void testGetOrCreateReturnsTheSamePlayer() {
+        PlayerRegistry registry = new PlayerRegistry();
+        assertNull(registry.get("simon"));
+        StagPlayer simon = registry.getOrCreate("simon", name -> new StagPlayer(name, "player", 3));
+        assertSame(simon, registry.getOrCreate("simon", name -> new StagPlayer(name, "player", 3)));
+        assertSame(simon, registry.get("simon"));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    void testPlayerIsCreatedOnceWhenRacing() throws Exception {
+        PlayerRegistry registry = new PlayerRegistry();
+        AtomicInteger created = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<StagPlayer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(threads.submit(() -> {
+                    start.await();
+                    return registry.getOrCreate("simon", name -> {
+                        created.incrementAndGet();
+                        return new StagPlayer(name, "player", 3);
+                    });
+                }));
+            }
+            start.countDown();
+            StagPlayer first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<StagPlayer> result : results) {
+                assertSame(first, result.get(10, TimeUnit.SECONDS));
+            }
+        }
+        finally {
+            threads.shutdownNow();
+        }
+        assertEquals(1, created.get(), "The factory should only have run once");
+    }
+
+    @Test
+    void testPlayersCanBeListed() {
+        PlayerRegistry registry = new PlayerRegistry();
+        registry.getOrCreate("simon", name -> new StagPlayer(name, "player", 3));
+        registry.getOrCreate("sion", name -> new StagPlayer(name, "player", 3));
+        List<String> names = new ArrayList<>();
+        for (StagPlayer player : registry.players()) {
+            names.add(player.getName());
+        }
+        assertEquals(2, names.size());
+        assertTrue(names.contains("simon") && names.contains("sion"));
+        assertThrows(UnsupportedOperationException.class, () -> registry.players().clear());
+    }
+}
@@ -0,0 +1,259 @@
+package edu.uob;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/* These tests run the non-blocking server on a free port and talk to it through GameClient, checking that a
+ single connection carries a whole session and that pipelined commands come back in order, over both the
+ line protocol and the framed protocol */
+
+class SessionPipeliningTests {
+
+    private Thread serverThread;
+    private int portNumber;
+    private GameStateExecutor executor;
+
+    @BeforeEach
+    void setup() throws Exception {
+        File entitiesFile = Paths.get("config" + File.separator + "extended-entities.dot").toAbsolutePath().toFile();
+        File actionsFile = Paths.get("config" + File.separator + "extended-actions.xml").toAbsolutePath().toFile();
+        GameServer server = new GameServer(entitiesFile, actionsFile);
+        try (ServerSocket probe = new ServerSocket(0)) {
+            portNumber = probe.getLocalPort();
+        }
+        executor = new GameStateExecutor(server);
+        serverThread = new Thread(() -> {
+            try {
+                server.nonBlockingListenOn(portNumber, executor);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+        waitForServer();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        serverThread.interrupt();
+        serverThread.join(1000);
+    }
+
+    List<String> sendCommandsToServer(CommandClient client, List<String> commands) {
+        return assertTimeoutPreemptively(Duration.ofMillis(5000), () -> client.sendCommands(commands),
+                "Server took too long to respond (probably stuck in an infinite loop)");
+    }
+
+    private long submittedCommands() {
+        return executor.getMetrics().getAdmitted() + executor.getMetrics().getRejected();
+    }
+
+    /* the listener thread may not have bound the port yet, so connecting is retried for a short while*/
+    private void waitForServer() throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                new Socket("localhost", portNumber).close();
+                return;
+            } catch (IOException e) {
+                if (attempt == 50) {
+                    throw e;
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    @Test
+    void testSessionCarriesManyCommands() throws IOException {
+        try (GameClient client = new GameClient("localhost", portNumber, "simon")) {
+            assertTrue(sendCommandsToServer(client, List.of("get axe")).get(0).contains("axe"));
+            assertTrue(sendCommandsToServer(client, List.of("inv")).get(0).contains("axe"));
+            assertEquals("You go into a forest", sendCommandsToServer(client, List.of("goto forest")).get(0));
+        }
+    }
+
+    @Test
+    void testPipelinedResponsesComeBackInOrder() throws IOException {
+        try (GameClient client = new GameClient("localhost", portNumber, "simon")) {
+            sendCommandsToServer(client, List.of("look"));
+            sendCommandsToServer(client, List.of("look"));
+            List<String> responses = sendCommandsToServer(client,
+                    List.of("get axe", "get coin", "inv", "goto forest", "look", "health"));
+            assertEquals(6, responses.size());
+            assertTrue(responses.get(0).contains("picked up a axe"));
+            assertTrue(responses.get(1).contains("picked up a coin"));
+            assertTrue(responses.get(2).contains("axe") && responses.get(2).contains("coin"));
+            assertEquals("You go into a forest", responses.get(3));
+            assertTrue(responses.get(4).contains("tree"));
+            assertEquals("You have 3 health points left", responses.get(5));
+        }
+    }
+
+    @Test
+    void testFramedProtocolPipelines() throws IOException {
+        try (FramedGameClient client = new FramedGameClient("localhost", portNumber, "simon")) {
+            List<String> responses = sendCommandsToServer(client, List.of("get axe", "inv", "goto forest", "look"));
+            assertEquals(4, responses.size());
+            assertTrue(responses.get(0).contains("picked up a axe"));
+            assertTrue(responses.get(1).contains("axe"));
+            assertEquals("You go into a forest", responses.get(2));
+            assertTrue(responses.get(3).contains("tree"));
+            assertEquals("You have 3 health points left", sendCommandsToServer(client, List.of("health")).get(0));
+        }
+    }
+
+    /* as with printf 'simon: look' | nc, the last command has no newline and the client then closes its side*/
+    @Test
+    void testLastCommandWithoutANewlineIsAnswered() throws IOException {
+        try (Socket socket = new Socket("localhost", portNumber)) {
+            socket.getOutputStream().write("simon: look".getBytes(StandardCharsets.UTF_8));
+            socket.shutdownOutput();
+            String response = assertTimeoutPreemptively(Duration.ofMillis(5000),
+                    () -> new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+            assertTrue(response.contains("cabin"), response);
+            assertTrue(response.endsWith("\n" + (char) 4 + "\n"), response);
+        }
+    }
+
+    /* a client which keeps sending without reading its responses is held back: once its responses fill up
+    * the server stops taking commands from it, and it gets every response once it starts reading them*/
+    @Test
+    void testAClientWhichDoesNotReadIsHeldBack() throws Exception {
+        byte[] line = "simon: look\n".getBytes(StandardCharsets.UTF_8);
+        /* enough responses to fill the socket buffers between the server and the client several times over*/
+        int commands = 20000;
+        try (Socket socket = new Socket()) {
+            /* a small receive window keeps the responses from all fitting in the socket buffers*/
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress("localhost", portNumber));
+            Thread writer = new Thread(() -> {
+                try {
+                    OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+                    for (int i = 0; i < commands; i++) {
+                        output.write(line);
+                    }
+                    output.flush();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            writer.setDaemon(true);
+            writer.start();
+            /* waits until the server has stopped taking commands*/
+            long submitted = submittedCommands();
+            long previous;
+            do {
+                previous = submitted;
+                Thread.sleep(500);
+                submitted = submittedCommands();
+            } while (submitted != previous);
+            assertTrue(submitted < commands, "the server took all " + submitted
+                    + " commands from a client which was not reading its responses");
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            int responses = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                int answered = 0;
+                String next;
+                while (answered < commands && (next = reader.readLine()) != null) {
+                    if (next.equals(String.valueOf((char) 4))) {
+                        answered++;
+                    }
+                }
+                return answered;
+            });
+            assertEquals(commands, responses);
+            writer.join(5000);
+            assertFalse(writer.isAlive());
+        }
+    }
+
+    /* a server which keeps sessions and runs every command it is sent. It answers the first few, then runs the
+    * next batch without answering and closes the connection. It counts how many times it ran each command*/
+    private static final class ReplyLosingServer implements Runnable {
+        private final GameServer game;
+        private final ServerSocket listener;
+        private final int answered;
+        private final int unanswered;
+        private final Map<String, Integer> runs = new ConcurrentHashMap<>();
+
+        private ReplyLosingServer(GameServer game, int answered, int unanswered) throws IOException {
+            this.game = game;
+            this.listener = new ServerSocket(0);
+            this.answered = answered;
+            this.unanswered = unanswered;
+        }
+
+        @Override
+        public void run() {
+            int lines = 0;
+            while (!listener.isClosed()) {
+                try (Socket socket = listener.accept();
+                     BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                     BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        lines++;
+                        runs.merge(line, 1, Integer::sum);
+                        String response = game.handleCommand(line);
+                        if (lines == answered + unanswered) {
+                            break;
+                        }
+                        if (lines > answered) {
+                            continue;
+                        }
+                        writer.write(response + "\n" + (char) 4 + "\n");
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Test
+    void testLostRepliesAreNotResent() throws Exception {
+        File entitiesFile = Paths.get("config" + File.separator + "extended-entities.dot").toAbsolutePath().toFile();
+        File actionsFile = Paths.get("config" + File.separator + "extended-actions.xml").toAbsolutePath().toFile();
+        /* two looks show the client that sessions are kept, then the three pipelined commands run unanswered*/
+        ReplyLosingServer server = new ReplyLosingServer(new GameServer(entitiesFile, actionsFile), 2, 3);
+        Thread thread = new Thread(server);
+        thread.setDaemon(true);
+        thread.start();
+        try (GameClient client = new GameClient("localhost", server.listener.getLocalPort(), "simon")) {
+            sendCommandsToServer(client, List.of("look"));
+            sendCommandsToServer(client, List.of("look"));
+            IOException lost = assertTimeoutPreemptively(Duration.ofMillis(5000), () -> assertThrows(IOException.class,
+                    () -> client.sendCommands(List.of("get axe", "get coin", "inv"))));
+            assertTrue(lost.getMessage().contains("0 of 3"), lost.getMessage());
+        }
+        finally {
+            server.listener.close();
+        }
+        for (String command : List.of("simon: get axe", "simon: get coin", "simon: inv")) {
+            assertEquals(1, server.runs.get(command), command + " should have run exactly once");
+        }
+    }
+}
@@ -73,13 +73,37 @@ public class StagLocationTest {
         assertEquals(EntityType.FURNITURE, location.getType(furniture.getName()));
     }
 
+    @Test
+    void snapshotFollowsChangesButOldSnapshotsDoNot() {
+        StagLocation location = new StagLocation("test location", "a test location");
+        LocationSnapshot before = location.getSnapshot();
+        StagArtefact artefact = new StagArtefact("coin", "a silver coin");
+        location.addArtefact(artefact.getName(), artefact);
+        assertFalse(before.getArtefacts().contains("coin"));
+        assertTrue(location.getSnapshot().getArtefacts().contains("coin"));
+        assertTrue(location.getSnapshot().toString().contains("coin: a silver coin"));
+        location.removeArtefact("coin");
+        assertFalse(location.getSnapshot().getArtefacts().contains("coin"));
+        assertEquals(location.toString(), location.getSnapshot().toString());
+    }
 
-
-
-
-
-
-
-
-
+    @Test
+    void snapshotVersionAndViewForPlayer() {
+        StagLocation location = new StagLocation("cabin", "a log cabin");
+        long start = location.getVersion();
+        StagPlayer simon = new StagPlayer("simon", "player", 3);
+        StagPlayer sion = new StagPlayer("sion", "player", 3);
+        location.addPlayer("simon", simon);
+        location.addPlayer("sion", sion);
+        assertEquals(start + 2, location.getVersion());
+        LocationSnapshot snapshot = location.getSnapshot();
+        assertSame(snapshot.toString(), snapshot.toString());
+        String view = snapshot.viewFor("simon");
+        assertFalse(view.contains("simon"));
+        assertTrue(view.contains("sion: player\n"));
+        assertEquals(snapshot.toString().replace("simon: player\n", ""), view);
+        location.addExit("forest", new StagLocation("forest", "a dark forest"));
+        assertEquals(start + 3, location.getVersion());
+        assertTrue(location.getSnapshot().viewFor("sion").endsWith("Exits:\n[forest]\n"));
+    }
 }
@@ -75,4 +75,36 @@ class StagPlayerTest {
         assertTrue(location.getArtefacts().containsValue(artefact1));
         assertTrue(location.getArtefacts().containsValue(artefact2));
     }
+
+    @Test
+    void testSnapshotFollowsHealthAndInventory() {
+        StagPlayer player = new StagPlayer("player", "description", 3);
+        PlayerSnapshot before = player.getSnapshot();
+        player.setHealth(2);
+        player.addToInventory(new StagArtefact("axe", "A sharp axe"));
+        assertEquals(3, before.getHealth());
+        assertTrue(before.getInventoryNames().isEmpty());
+        assertEquals(2, player.getSnapshot().getHealth());
+        assertEquals("axe: A sharp axe\n", player.getSnapshot().getInventoryText());
+        player.removeFromInventory("axe");
+        assertEquals("", player.getSnapshot().getInventoryText());
+    }
+
+    @Test
+    void testContainerFollowsTheArtefact() {
+        StagLocation location = new StagLocation("cabin", "A log cabin");
+        StagArtefact axe = new StagArtefact("axe", "A sharp axe");
+        StagPlayer player = new StagPlayer("player", "description", 3);
+        player.setLocation(location);
+        location.addArtefact("axe", axe);
+        assertSame(location, axe.getContainer());
+        /* picked up the way get does it: into the inventory first, then out of the location*/
+        player.addToInventory(axe);
+        location.removeArtefact("axe");
+        assertSame(player, axe.getContainer());
+        player.dropInventoryInLocation();
+        assertSame(location, axe.getContainer());
+        location.removeEntity("axe");
+        assertNull(axe.getContainer());
+    }
 }
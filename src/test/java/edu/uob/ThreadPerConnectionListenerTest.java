@@ -0,0 +1,72 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThreadPerConnectionListenerTest {
+
+    /* with room for one session, a second connection is answered busy while the first is open, and a new
+    * connection gets in again once the first has closed*/
+    @Test
+    void testConnectionsBeyondTheLimitAreTurnedAway() throws Exception {
+        GameServer server = new GameServer(new File("config" + File.separator + "extended-entities.dot"),
+                new File("config" + File.separator + "extended-actions.xml"));
+        int portNumber;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            portNumber = probe.getLocalPort();
+        }
+        ThreadPerConnectionListener listener = new ThreadPerConnectionListener(server, new GameStateExecutor(server), 1);
+        Thread serverThread = new Thread(() -> {
+            try {
+                listener.listenOn(portNumber);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+        try {
+            assertTimeoutPreemptively(Duration.ofMillis(5000), () -> {
+                GameClient first = new GameClient("localhost", portNumber, "simon");
+                assertTrue(lookUntilServed(first).contains("cabin"));
+                try (Socket second = new Socket("localhost", portNumber)) {
+                    String response = new String(second.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+                    assertEquals(GameStateExecutor.SERVER_BUSY + "\n" + (char) 4 + "\n", response);
+                }
+                first.close();
+                assertTrue(lookUntilServed(new GameClient("localhost", portNumber, "sion")).contains("cabin"));
+            });
+        }
+        finally {
+            serverThread.interrupt();
+        }
+    }
+
+    /* the listener may not be listening yet, or may not have finished with the last session, so the look is
+    * tried again for a short while*/
+    private static String lookUntilServed(GameClient client) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                String response = client.sendCommands(List.of("look")).get(0);
+                if (!response.equals(GameStateExecutor.SERVER_BUSY) || attempt == 50) {
+                    return response;
+                }
+            } catch (IOException e) {
+                if (attempt == 50) {
+                    throw e;
+                }
+            }
+            client.close();
+            Thread.sleep(50);
+        }
+    }
+}
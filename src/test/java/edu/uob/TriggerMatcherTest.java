@@ -0,0 +1,78 @@
+package edu.uob;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TriggerMatcherTest {
+
+    /* what GameEngine used to do: try every trigger in turn with contains*/
+    private static String firstContained(List<String> triggers, String text) {
+        for (String trigger : triggers) {
+            if (text.contains(trigger)) {
+                return trigger;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void testFindsMultiWordTriggersAndPositions() {
+        TriggerMatcher matcher = new TriggerMatcher(List.of("cut down", "cut", "open", "down"));
+        List<TriggerMatcher.Match> matches = matcher.findAll("simon: cut down tree");
+        List<String> found = new ArrayList<>();
+        for (TriggerMatcher.Match match : matches) {
+            found.add(match.getTrigger() + "@" + match.getPosition());
+        }
+        assertTrue(found.contains("cut@7"));
+        assertTrue(found.contains("cut down@7"));
+        assertTrue(found.contains("down@11"));
+        assertEquals(3, found.size());
+        assertEquals("cut down", matcher.findTrigger("simon: cut down tree"));
+        assertNull(matcher.findTrigger("simon: look"));
+    }
+
+    @Test
+    void testEarlierTriggerWinsLikeTheOldScan() {
+        TriggerMatcher matcher = new TriggerMatcher(List.of("down", "cut down", "cut"));
+        assertEquals("down", matcher.findTrigger("simon: cut down tree"));
+        assertEquals("cut", matcher.findTrigger("simon: cut tree"));
+    }
+
+    @Test
+    void testSameAsContainsScanForRandomTriggers() {
+        Random random = new Random(7);
+        for (int round = 0; round < 300; round++) {
+            List<String> triggers = new ArrayList<>();
+            int count = 1 + random.nextInt(20);
+            for (int i = 0; i < count; i++) {
+                triggers.add(randomText(random, 1 + random.nextInt(4)));
+            }
+            TriggerMatcher matcher = new TriggerMatcher(triggers);
+            for (int i = 0; i < 20; i++) {
+                String text = randomText(random, random.nextInt(20));
+                assertEquals(firstContained(triggers, text), matcher.findTrigger(text), triggers + " in \"" + text + "\"");
+                int expectedMatches = 0;
+                for (String trigger : new LinkedHashSet<>(triggers)) {
+                    for (int at = text.indexOf(trigger); at >= 0; at = text.indexOf(trigger, at + 1)) {
+                        expectedMatches++;
+                    }
+                }
+                assertEquals(expectedMatches, matcher.findAll(text).size());
+            }
+        }
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append("ab c".charAt(random.nextInt(4)));
+        }
+        return text.toString();
+    }
+}